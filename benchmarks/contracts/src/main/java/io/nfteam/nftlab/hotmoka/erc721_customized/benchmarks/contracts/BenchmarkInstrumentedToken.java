@@ -0,0 +1,13 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks.contracts;
+
+/**
+ * A (@link BenchmarkToken) with instrumentation enabled, that emits a summary of its counters
+ * every (@code summaryInterval) operations.
+ */
+public class BenchmarkInstrumentedToken extends BenchmarkToken {
+  public BenchmarkInstrumentedToken(String name, String symbol, long summaryInterval) {
+    super(name, symbol, true);
+
+    _enableInstrumentation(summaryInterval);
+  }
+}
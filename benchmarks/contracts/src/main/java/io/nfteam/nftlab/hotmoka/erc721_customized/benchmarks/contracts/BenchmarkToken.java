@@ -0,0 +1,45 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks.contracts;
+
+import io.nfteam.nftlab.hotmoka.erc721_customized.ERC721;
+import io.takamaka.code.lang.Contract;
+import io.takamaka.code.lang.FromContract;
+import io.takamaka.code.lang.Takamaka;
+import io.takamaka.code.math.UnsignedBigInteger;
+
+/**
+ * An (@link ERC721) that exposes minting and burning to the benchmarks.
+ * Token ids are passed as (@code long), so that the benchmarks need not create an (@link UnsignedBigInteger) per call.
+ */
+public class BenchmarkToken extends ERC721 {
+  public BenchmarkToken(String name, String symbol, boolean generateEvents) {
+    super(name, symbol, generateEvents);
+  }
+
+  @FromContract
+  public void mint(Contract to, long tokenId) {
+    _mint(to, UnsignedBigInteger.valueOf(tokenId));
+  }
+
+  @FromContract
+  public void mintBatch(Contract to, long firstTokenId, int count) {
+    _mintBatch(to, UnsignedBigInteger.valueOf(firstTokenId), count);
+  }
+
+  /**
+   * Runs the same path as (@code transferFrom), with its hooks, counters and events, from the current owner.
+   */
+  @FromContract
+  public void transfer(Contract to, long tokenId) {
+    UnsignedBigInteger id = UnsignedBigInteger.valueOf(tokenId);
+
+    _transferFrom(caller(), ownerOf(id), to, id);
+  }
+
+  @FromContract
+  public void burn(long tokenId) {
+    UnsignedBigInteger id = UnsignedBigInteger.valueOf(tokenId);
+    Takamaka.require(_isApprovedOrOwner(caller(), id), "ERC721: burn caller is not owner nor approved");
+
+    _burn(id);
+  }
+}
@@ -0,0 +1,38 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks.contracts;
+
+import io.nfteam.nftlab.hotmoka.erc721_customized.extensions.ERC721URIStorage;
+import io.takamaka.code.lang.Contract;
+import io.takamaka.code.lang.FromContract;
+import io.takamaka.code.lang.Takamaka;
+import io.takamaka.code.math.UnsignedBigInteger;
+
+/**
+ * An (@link ERC721URIStorage) that exposes minting, burning and the URIs of the tokens to the benchmarks.
+ * Token ids are passed as (@code long), so that the benchmarks need not create an (@link UnsignedBigInteger) per call.
+ */
+public class BenchmarkURIToken extends ERC721URIStorage {
+  public BenchmarkURIToken(String name, String symbol, boolean generateEvents) {
+    super(name, symbol, generateEvents);
+  }
+
+  @FromContract
+  public void mint(Contract to, long tokenId) {
+    _mint(to, UnsignedBigInteger.valueOf(tokenId));
+  }
+
+  @FromContract
+  public void setTokenURI(long tokenId, String tokenURI) {
+    UnsignedBigInteger id = UnsignedBigInteger.valueOf(tokenId);
+    Takamaka.require(_isApprovedOrOwner(caller(), id), "ERC721URIStorage: caller is not owner nor approved");
+
+    _setTokenURI(id, tokenURI);
+  }
+
+  @FromContract
+  public void burn(long tokenId) {
+    UnsignedBigInteger id = UnsignedBigInteger.valueOf(tokenId);
+    Takamaka.require(_isApprovedOrOwner(caller(), id), "ERC721: burn caller is not owner nor approved");
+
+    _burn(id);
+  }
+}
@@ -0,0 +1,5 @@
+module io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks.contracts {
+  exports io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks.contracts;
+  requires io.nfteam.nftlab.hotmoka.erc721_customized;
+  requires io.takamaka.code;
+}
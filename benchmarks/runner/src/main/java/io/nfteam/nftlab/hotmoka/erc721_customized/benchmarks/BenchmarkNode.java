@@ -0,0 +1,187 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks;
+
+import io.hotmoka.beans.CodeExecutionException;
+import io.hotmoka.beans.TransactionException;
+import io.hotmoka.beans.TransactionRejectedException;
+import io.hotmoka.beans.references.TransactionReference;
+import io.hotmoka.beans.requests.ConstructorCallTransactionRequest;
+import io.hotmoka.beans.requests.InstanceMethodCallTransactionRequest;
+import io.hotmoka.beans.requests.SignedTransactionRequest.Signer;
+import io.hotmoka.beans.responses.NonInitialTransactionResponse;
+import io.hotmoka.beans.responses.TransactionResponse;
+import io.hotmoka.beans.responses.TransactionResponseWithUpdates;
+import io.hotmoka.beans.signatures.ConstructorSignature;
+import io.hotmoka.beans.signatures.MethodSignature;
+import io.hotmoka.beans.values.StorageReference;
+import io.hotmoka.beans.values.StorageValue;
+import io.hotmoka.crypto.SignatureAlgorithmForTransactionRequests;
+import io.hotmoka.memory.MemoryBlockchain;
+import io.hotmoka.memory.MemoryBlockchainConfig;
+import io.hotmoka.nodes.ConsensusParams;
+import io.hotmoka.nodes.Node;
+import io.hotmoka.views.GasHelper;
+import io.hotmoka.views.InitializedNode;
+import io.hotmoka.views.NodeWithAccounts;
+import io.hotmoka.views.NodeWithJars;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.pipeline.PipelineConfig;
+
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.security.PrivateKey;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A local, in-memory Hotmoka node with the token jars installed and a set of funded accounts.
+ * It keeps the nonces of the accounts locally, so that each transaction costs a single round trip.
+ */
+final class BenchmarkNode implements AutoCloseable {
+  private static final String CHAIN_ID = "erc721-benchmarks";
+  private static final BigInteger GAS_LIMIT = BigInteger.valueOf(100_000_000L);
+  private static final BigInteger FUNDS = BigInteger.TEN.pow(30);
+
+  private final Node node;
+  private final NodeWithAccounts accounts;
+  private final TransactionReference classpath;
+  private final BigInteger gasPrice;
+  private final Map<StorageReference, BigInteger> nonces = new HashMap<>();
+  private final Map<StorageReference, Signer> signers = new HashMap<>();
+
+  /**
+   * Starts the node and installs the given jars.
+   *
+   * @param takamakaCode the jar of the Takamaka runtime
+   * @param library the jar of the token library
+   * @param contracts the jar of the benchmark contracts, that depends on the library
+   * @param numberOfAccounts the number of accounts to create and fund
+   */
+  BenchmarkNode(Path takamakaCode, Path library, Path contracts, int numberOfAccounts) throws Exception {
+    ConsensusParams consensus = new ConsensusParams.Builder()
+      .setChainId(CHAIN_ID)
+      .build();
+
+    this.node = MemoryBlockchain.init(new MemoryBlockchainConfig.Builder().build(), consensus);
+
+    InitializedNode initialized = InitializedNode.of(node, consensus, takamakaCode, FUNDS, BigInteger.ZERO);
+    NodeWithJars jars = NodeWithJars.of(node, initialized.gamete(), initialized.keysOfGamete().getPrivate(), library, contracts);
+
+    BigInteger[] funds = new BigInteger[numberOfAccounts];
+    for (int i = 0; i < numberOfAccounts; i++) {
+      funds[i] = FUNDS.divide(BigInteger.valueOf(numberOfAccounts + 1L));
+    }
+
+    this.accounts = NodeWithAccounts.of(node, initialized.gamete(), initialized.keysOfGamete().getPrivate(), funds);
+    this.classpath = jars.jar(1);
+    this.gasPrice = new GasHelper(node).getSafeGasPrice();
+
+    var signature = SignatureAlgorithmForTransactionRequests.mk(node.getNameOfSignatureAlgorithmForRequests());
+    for (int i = 0; i < numberOfAccounts; i++) {
+      PrivateKey key = accounts.privateKey(i);
+      signers.put(accounts.account(i), Signer.with(signature, key));
+      nonces.put(accounts.account(i), BigInteger.ZERO);
+    }
+  }
+
+  StorageReference account(int i) {
+    return accounts.account(i);
+  }
+
+  Signer signer(StorageReference account) {
+    return signers.get(account);
+  }
+
+  Node node() {
+    return node;
+  }
+
+  TransactionReference classpath() {
+    return classpath;
+  }
+
+  /**
+   * The parameters of a pipeline that sends transactions to this node. The accounts given to the
+   * pipeline must not be used through (@link #call) anymore, since the local nonces would be stale.
+   */
+  PipelineConfig.Builder pipelineConfig() {
+    return new PipelineConfig.Builder(CHAIN_ID, gasPrice).setGasLimit(GAS_LIMIT);
+  }
+
+  /**
+   * Creates a contract, paid by the given account.
+   */
+  StorageReference deploy(StorageReference payer, ConstructorSignature constructor, StorageValue... actuals) throws Exception {
+    return node.addConstructorCallTransaction(new ConstructorCallTransactionRequest(
+      signers.get(payer), payer, nextNonce(payer), CHAIN_ID, GAS_LIMIT, gasPrice, classpath, constructor, actuals
+    ));
+  }
+
+  /**
+   * Runs a transaction that calls the given method and measures its cost.
+   *
+   * @return the measurement, or null if the transaction failed
+   */
+  Measurement call(StorageReference caller, MethodSignature method, StorageReference receiver, StorageValue... actuals)
+    throws Exception {
+
+    var request = new InstanceMethodCallTransactionRequest(
+      signers.get(caller), caller, nextNonce(caller), CHAIN_ID, GAS_LIMIT, gasPrice, classpath, method, receiver, actuals
+    );
+
+    long start = System.nanoTime();
+    var supplier = node.postInstanceMethodCallTransaction(request);
+    try {
+      supplier.get();
+    }
+    catch (TransactionException | CodeExecutionException e) {
+      return null;
+    }
+    long elapsed = System.nanoTime() - start;
+
+    return measure(node.getResponse(supplier.getReferenceOfRequest()), elapsed);
+  }
+
+  /**
+   * Runs a transaction that calls the given method, failing if the transaction fails.
+   *
+   * @return the reference of the transaction, to read its response and its events
+   */
+  TransactionReference run(StorageReference caller, MethodSignature method, StorageReference receiver, StorageValue... actuals)
+    throws Exception {
+
+    var supplier = node.postInstanceMethodCallTransaction(new InstanceMethodCallTransactionRequest(
+      signers.get(caller), caller, nextNonce(caller), CHAIN_ID, GAS_LIMIT, gasPrice, classpath, method, receiver, actuals
+    ));
+    supplier.get();
+
+    return supplier.getReferenceOfRequest();
+  }
+
+  private static Measurement measure(TransactionResponse response, long elapsedNanos) {
+    var gas = (NonInitialTransactionResponse) response;
+
+    long bytes = 0;
+    if (response instanceof TransactionResponseWithUpdates) {
+      bytes = ((TransactionResponseWithUpdates) response).getUpdates()
+        .mapToLong(update -> update.toByteArray().length)
+        .sum();
+    }
+
+    return new Measurement(gas.gasConsumedForCPU, gas.gasConsumedForRAM, gas.gasConsumedForStorage, bytes, elapsedNanos);
+  }
+
+  private BigInteger nextNonce(StorageReference account) throws TransactionRejectedException {
+    BigInteger nonce = nonces.get(account);
+    if (nonce == null) {
+      throw new TransactionRejectedException("unknown account " + account);
+    }
+
+    nonces.put(account, nonce.add(BigInteger.ONE));
+
+    return nonce;
+  }
+
+  @Override
+  public void close() throws Exception {
+    node.close();
+  }
+}
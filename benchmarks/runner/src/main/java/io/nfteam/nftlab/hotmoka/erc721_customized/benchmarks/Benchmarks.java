@@ -0,0 +1,195 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks;
+
+import io.hotmoka.beans.signatures.ConstructorSignature;
+import io.hotmoka.beans.signatures.VoidMethodSignature;
+import io.hotmoka.beans.types.BasicTypes;
+import io.hotmoka.beans.types.ClassType;
+import io.hotmoka.beans.values.BooleanValue;
+import io.hotmoka.beans.values.IntValue;
+import io.hotmoka.beans.values.LongValue;
+import io.hotmoka.beans.values.StorageReference;
+import io.hotmoka.beans.values.StringValue;
+
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures the gas, the storage and the time consumed by the operations of the tokens,
+ * on a local in-memory node, for collections of growing size.
+ *
+ * For each workload and size, the collection is first populated with batch mints to owners
+ * drawn from a Zipf distribution, then single mints, transfers, operator approvals and burns
+ * are sampled on top of it. The report has a JSON line per workload, size and operation.
+ *
+ * Options:
+ * <pre>
+ *   --jars DIR           directory with the io-takamaka-code, library and contracts jars (target/jars)
+ *   --tokens N,N,...     sizes of the collections (1000,10000,100000)
+ *   --owners N           number of owner accounts (100)
+ *   --skew S             exponent of the distribution of the owners, 0 is uniform (1.0)
+ *   --samples N          sampled transactions per operation (200)
+ *   --approval-churn N   setApprovalForAll transactions per size (1000)
+ *   --batch N            tokens per batch mint while populating (500)
+ *   --events             generate events
+ *   --out FILE           where to write the report (standard output)
+ * </pre>
+ */
+public final class Benchmarks {
+  private static final String PACKAGE = "io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks.contracts.";
+  private static final String[] WORKLOADS = { "BenchmarkToken", "BenchmarkEnumerableToken" };
+
+  private final Options options;
+  private final BenchmarkNode node;
+  private final Report report = new Report();
+  private final Random random = new Random(42);
+
+  private Benchmarks(Options options, BenchmarkNode node) {
+    this.options = options;
+    this.node = node;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options options = new Options(args);
+
+    try (BenchmarkNode node = new BenchmarkNode(
+      options.jars.resolve("io-takamaka-code.jar"),
+      options.jars.resolve("hotmoka-erc721-customized.jar"),
+      options.jars.resolve("hotmoka-erc721-benchmarks-contracts.jar"),
+      options.owners + 1
+    )) {
+      Benchmarks benchmarks = new Benchmarks(options, node);
+
+      for (String workload : WORKLOADS) {
+        for (long tokens : options.tokens) {
+          benchmarks.run(workload, tokens);
+        }
+      }
+
+      try (Writer out = options.out != null
+        ? Files.newBufferedWriter(options.out, StandardCharsets.UTF_8)
+        : new OutputStreamWriter(System.out, StandardCharsets.UTF_8)) {
+
+        benchmarks.report.writeTo(out);
+      }
+    }
+  }
+
+  private void run(String workload, long tokens) throws Exception {
+    ClassType type = new ClassType(PACKAGE + workload);
+    var mint = new VoidMethodSignature(type, "mint", ClassType.CONTRACT, BasicTypes.LONG);
+    var mintBatch = new VoidMethodSignature(type, "mintBatch", ClassType.CONTRACT, BasicTypes.LONG, BasicTypes.INT);
+    var transfer = new VoidMethodSignature(type, "transfer", ClassType.CONTRACT, BasicTypes.LONG);
+    var burn = new VoidMethodSignature(type, "burn", BasicTypes.LONG);
+    var setApprovalForAll = new VoidMethodSignature(type, "setApprovalForAll", ClassType.CONTRACT, BasicTypes.BOOLEAN);
+
+    StorageReference minter = node.account(0);
+    StorageReference token = node.deploy(minter,
+      new ConstructorSignature(type, ClassType.STRING, ClassType.STRING, BasicTypes.BOOLEAN),
+      new StringValue("Benchmark"), new StringValue("BNC"), new BooleanValue(options.events)
+    );
+
+    ZipfDistribution owners = new ZipfDistribution(options.owners, options.skew, random);
+
+    // Owner of each token, as index of the owner account, or -1 if the token has been burnt
+    int[] ownerOf = new int[Math.toIntExact(tokens + options.samples)];
+    Arrays.fill(ownerOf, -1);
+
+    for (long first = 0; first < tokens; first += options.batch) {
+      int count = (int) Math.min(options.batch, tokens - first);
+      int owner = owners.next() + 1;
+
+      report.add(workload, tokens, "mintBatch", node.call(minter, mintBatch, token,
+        node.account(owner), new LongValue(first), new IntValue(count)));
+
+      Arrays.fill(ownerOf, (int) first, (int) first + count, owner);
+    }
+
+    for (int i = 0; i < options.samples; i++) {
+      long tokenId = tokens + i;
+      int owner = owners.next() + 1;
+
+      report.add(workload, tokens, "mint", node.call(minter, mint, token, node.account(owner), new LongValue(tokenId)));
+      ownerOf[(int) tokenId] = owner;
+    }
+
+    for (int i = 0; i < options.samples; i++) {
+      int tokenId = existingToken(ownerOf);
+      int from = ownerOf[tokenId];
+      int to = otherOwner(owners, from);
+
+      report.add(workload, tokens, "transferFrom", node.call(node.account(from), transfer, token,
+        node.account(to), new LongValue(tokenId)));
+      ownerOf[tokenId] = to;
+    }
+
+    for (int i = 0; i < options.approvalChurn; i++) {
+      int owner = owners.next() + 1;
+      int operator = otherOwner(owners, owner);
+
+      report.add(workload, tokens, "setApprovalForAll", node.call(node.account(owner), setApprovalForAll, token,
+        node.account(operator), new BooleanValue(random.nextBoolean())));
+    }
+
+    for (int i = 0; i < options.samples; i++) {
+      int tokenId = existingToken(ownerOf);
+
+      report.add(workload, tokens, "burn", node.call(node.account(ownerOf[tokenId]), burn, token, new LongValue(tokenId)));
+      ownerOf[tokenId] = -1;
+    }
+  }
+
+  private int existingToken(int[] ownerOf) {
+    int tokenId;
+    do {
+      tokenId = random.nextInt(ownerOf.length);
+    }
+    while (ownerOf[tokenId] < 0);
+
+    return tokenId;
+  }
+
+  private int otherOwner(ZipfDistribution owners, int owner) {
+    int other;
+    do {
+      other = owners.next() + 1;
+    }
+    while (other == owner && options.owners > 1);
+
+    return other;
+  }
+
+  private static final class Options {
+    private Path jars = Paths.get("target", "jars");
+    private long[] tokens = { 1_000, 10_000, 100_000 };
+    private int owners = 100;
+    private double skew = 1.0;
+    private int samples = 200;
+    private int approvalChurn = 1000;
+    private int batch = 500;
+    private boolean events;
+    private Path out;
+
+    private Options(String[] args) {
+      for (int i = 0; i < args.length; i++) {
+        switch (args[i]) {
+          case "--jars": jars = Paths.get(args[++i]); break;
+          case "--tokens": tokens = Arrays.stream(args[++i].split(",")).mapToLong(Long::parseLong).toArray(); break;
+          case "--owners": owners = Integer.parseInt(args[++i]); break;
+          case "--skew": skew = Double.parseDouble(args[++i]); break;
+          case "--samples": samples = Integer.parseInt(args[++i]); break;
+          case "--approval-churn": approvalChurn = Integer.parseInt(args[++i]); break;
+          case "--batch": batch = Integer.parseInt(args[++i]); break;
+          case "--events": events = true; break;
+          case "--out": out = Paths.get(args[++i]); break;
+          default: throw new IllegalArgumentException("unknown option " + args[i]);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks;
+
+import java.math.BigInteger;
+
+/**
+ * The cost of a single transaction.
+ */
+final class Measurement {
+  final BigInteger gasForCPU;
+  final BigInteger gasForRAM;
+  final BigInteger gasForStorage;
+
+  // Size of the serialized updates written by the transaction
+  final long storageBytes;
+
+  final long elapsedNanos;
+
+  Measurement(BigInteger gasForCPU, BigInteger gasForRAM, BigInteger gasForStorage, long storageBytes, long elapsedNanos) {
+    this.gasForCPU = gasForCPU;
+    this.gasForRAM = gasForRAM;
+    this.gasForStorage = gasForStorage;
+    this.storageBytes = storageBytes;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  BigInteger gas() {
+    return gasForCPU.add(gasForRAM).add(gasForStorage);
+  }
+}
@@ -0,0 +1,127 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks;
+
+import io.hotmoka.beans.signatures.ConstructorSignature;
+import io.hotmoka.beans.signatures.VoidMethodSignature;
+import io.hotmoka.beans.types.BasicTypes;
+import io.hotmoka.beans.types.ClassType;
+import io.hotmoka.beans.values.BooleanValue;
+import io.hotmoka.beans.values.LongValue;
+import io.hotmoka.beans.values.StorageReference;
+import io.hotmoka.beans.values.StringValue;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.pipeline.BulkClient;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.pipeline.Operation;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.pipeline.PipelineConfig;
+
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the throughput of a (@link BulkClient) on a local in-memory node: a phase of mints,
+ * where each account mints tokens to itself, then a phase of transfers, where each token goes
+ * to the next account. The accounts send their transactions in parallel and without waiting
+ * for the commits. The report has a JSON line per phase, with the latencies of each stage.
+ *
+ * Options:
+ * <pre>
+ *   --jars DIR           directory with the io-takamaka-code, library and contracts jars (target/jars)
+ *   --accounts N         number of paying accounts (8)
+ *   --operations N       mints, and then transfers, per phase (10000)
+ *   --in-flight N        operations in flight at once (256)
+ *   --attempts N         attempts per operation before it is reported as rejected (3)
+ *   --events             generate events
+ *   --out FILE           where to write the report (standard output)
+ * </pre>
+ *
+ * Run it with (@code mvn exec:java -Dexec.mainClass=io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks.PipelinedBenchmarks).
+ */
+public final class PipelinedBenchmarks {
+  private static final ClassType TOKEN = new ClassType("io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks.contracts.BenchmarkToken");
+  private static final VoidMethodSignature MINT = new VoidMethodSignature(TOKEN, "mint", ClassType.CONTRACT, BasicTypes.LONG);
+  private static final VoidMethodSignature TRANSFER = new VoidMethodSignature(TOKEN, "transfer", ClassType.CONTRACT, BasicTypes.LONG);
+
+  private PipelinedBenchmarks() {}
+
+  public static void main(String[] args) throws Exception {
+    Options options = new Options(args);
+
+    try (BenchmarkNode node = new BenchmarkNode(
+      options.jars.resolve("io-takamaka-code.jar"),
+      options.jars.resolve("hotmoka-erc721-customized.jar"),
+      options.jars.resolve("hotmoka-erc721-benchmarks-contracts.jar"),
+      options.accounts
+    );
+      PrintWriter out = new PrintWriter(options.out != null
+        ? Files.newBufferedWriter(options.out, StandardCharsets.UTF_8)
+        : new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+
+      StorageReference token = node.deploy(node.account(0),
+        new ConstructorSignature(TOKEN, ClassType.STRING, ClassType.STRING, BasicTypes.BOOLEAN),
+        new StringValue("Pipelined"), new StringValue("PPL"), new BooleanValue(options.events)
+      );
+
+      PipelineConfig config = node.pipelineConfig()
+        .setMaxInFlight(options.inFlight)
+        .setMaxAttempts(options.attempts)
+        .build();
+
+      var mints = new ArrayList<Operation>();
+      var transfers = new ArrayList<Operation>();
+      for (long tokenId = 0; tokenId < options.operations; tokenId++) {
+        StorageReference owner = node.account((int) (tokenId % options.accounts));
+        StorageReference next = node.account((int) ((tokenId + 1) % options.accounts));
+
+        mints.add(Operation.of("mint", owner, MINT, token, owner, new LongValue(tokenId)));
+        transfers.add(Operation.of("transferFrom", owner, TRANSFER, token, next, new LongValue(tokenId)));
+      }
+
+      run(node, options.accounts, config, "mint", mints, out);
+      run(node, options.accounts, config, "transferFrom", transfers, out);
+    }
+  }
+
+  private static void run(BenchmarkNode node, int accounts, PipelineConfig config, String phase, List<Operation> operations,
+                          PrintWriter out)
+    throws Exception {
+
+    try (BulkClient client = new BulkClient(node.node(), node.classpath(), config)) {
+      for (int i = 0; i < accounts; i++) {
+        client.addAccount(node.account(i), node.signer(node.account(i)));
+      }
+
+      client.submitAll(operations);
+      out.println("{\"phase\":\"" + phase + "\",\"report\":" + client.report() + "}");
+      out.flush();
+    }
+  }
+
+  private static final class Options {
+    private Path jars = Paths.get("target", "jars");
+    private int accounts = 8;
+    private long operations = 10_000;
+    private int inFlight = 256;
+    private int attempts = 3;
+    private boolean events;
+    private Path out;
+
+    private Options(String[] args) {
+      for (int i = 0; i < args.length; i++) {
+        switch (args[i]) {
+          case "--jars": jars = Paths.get(args[++i]); break;
+          case "--accounts": accounts = Integer.parseInt(args[++i]); break;
+          case "--operations": operations = Long.parseLong(args[++i]); break;
+          case "--in-flight": inFlight = Integer.parseInt(args[++i]); break;
+          case "--attempts": attempts = Integer.parseInt(args[++i]); break;
+          case "--events": events = true; break;
+          case "--out": out = Paths.get(args[++i]); break;
+          default: throw new IllegalArgumentException("unknown option " + args[i]);
+        }
+      }
+    }
+  }
+}
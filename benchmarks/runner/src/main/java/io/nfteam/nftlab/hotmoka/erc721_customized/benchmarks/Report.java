@@ -0,0 +1,62 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Aggregates the measurements of each operation and writes them as JSON lines,
+ * one per operation and collection size, so that two reports can be diffed line by line.
+ */
+final class Report {
+  private final Map<String, List<Measurement>> measurements = new LinkedHashMap<>();
+  private final Map<String, Integer> failures = new LinkedHashMap<>();
+
+  void add(String workload, long tokens, String operation, Measurement measurement) {
+    String key = workload + '\t' + tokens + '\t' + operation;
+
+    if (measurement == null) {
+      failures.merge(key, 1, Integer::sum);
+    } else {
+      measurements.computeIfAbsent(key, k -> new ArrayList<>()).add(measurement);
+    }
+  }
+
+  void writeTo(Writer out) throws IOException {
+    for (var entry : measurements.entrySet()) {
+      String[] key = entry.getKey().split("\t");
+      List<Measurement> ms = entry.getValue();
+
+      long[] nanos = ms.stream().mapToLong(m -> m.elapsedNanos).sorted().toArray();
+
+      out.write("{\"workload\":\"" + key[0] + "\""
+        + ",\"tokens\":" + key[1]
+        + ",\"operation\":\"" + key[2] + "\""
+        + ",\"samples\":" + ms.size()
+        + ",\"failures\":" + failures.getOrDefault(entry.getKey(), 0)
+        + ",\"gas\":{\"cpu\":" + mean(ms, m -> m.gasForCPU)
+        + ",\"ram\":" + mean(ms, m -> m.gasForRAM)
+        + ",\"storage\":" + mean(ms, m -> m.gasForStorage)
+        + ",\"total\":" + mean(ms, Measurement::gas) + "}"
+        + ",\"storageBytes\":" + ms.stream().mapToLong(m -> m.storageBytes).sum() / ms.size()
+        + ",\"micros\":{\"mean\":" + Arrays.stream(nanos).sum() / nanos.length / 1000
+        + ",\"p50\":" + percentile(nanos, 50) / 1000
+        + ",\"p99\":" + percentile(nanos, 99) / 1000 + "}"
+        + "}\n");
+    }
+  }
+
+  private static BigInteger mean(List<Measurement> ms, Function<Measurement, BigInteger> gas) {
+    return ms.stream().map(gas).reduce(BigInteger.ZERO, BigInteger::add).divide(BigInteger.valueOf(ms.size()));
+  }
+
+  private static long percentile(long[] sorted, int percentile) {
+    return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+  }
+}
@@ -0,0 +1,35 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws indexes in [0, n) with probability proportional to 1 / (i + 1)^exponent.
+ * An exponent of zero yields a uniform distribution; larger exponents concentrate
+ * the draws on the first indexes, as for collections with a few whales.
+ */
+final class ZipfDistribution {
+  private final double[] cumulative;
+  private final Random random;
+
+  ZipfDistribution(int n, double exponent, Random random) {
+    this.cumulative = new double[n];
+    this.random = random;
+
+    double sum = 0;
+    for (int i = 0; i < n; i++) {
+      sum += 1 / Math.pow(i + 1, exponent);
+      cumulative[i] = sum;
+    }
+
+    for (int i = 0; i < n; i++) {
+      cumulative[i] /= sum;
+    }
+  }
+
+  int next() {
+    int pos = Arrays.binarySearch(cumulative, random.nextDouble());
+
+    return Math.min(pos >= 0 ? pos : -pos - 1, cumulative.length - 1);
+  }
+}
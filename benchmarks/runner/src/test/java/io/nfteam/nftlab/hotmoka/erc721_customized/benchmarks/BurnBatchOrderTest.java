@@ -0,0 +1,87 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks;
+
+import io.hotmoka.beans.references.TransactionReference;
+import io.hotmoka.beans.signatures.ConstructorSignature;
+import io.hotmoka.beans.signatures.VoidMethodSignature;
+import io.hotmoka.beans.types.BasicTypes;
+import io.hotmoka.beans.types.ClassType;
+import io.hotmoka.beans.values.BooleanValue;
+import io.hotmoka.beans.values.IntValue;
+import io.hotmoka.beans.values.LongValue;
+import io.hotmoka.beans.values.StorageReference;
+import io.hotmoka.beans.values.StringValue;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.NodeTokenView;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.TokenEvents;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.index.OwnershipIndex;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that a batch burn leaves the enumerations of the contract in the order
+ * that the off-chain index obtains by replaying its events.
+ */
+class BurnBatchOrderTest {
+  private static final ClassType TOKEN = new ClassType(TestNodes.CONTRACTS + "BenchmarkEnumerableToken");
+  private static final VoidMethodSignature MINT = new VoidMethodSignature(TOKEN, "mint", ClassType.CONTRACT, BasicTypes.LONG);
+  private static final VoidMethodSignature SET_APPROVAL_FOR_ALL =
+    new VoidMethodSignature(TOKEN, "setApprovalForAll", ClassType.CONTRACT, BasicTypes.BOOLEAN);
+  private static final VoidMethodSignature BURN_BATCH =
+    new VoidMethodSignature(TOKEN, "burnBatch", BasicTypes.LONG, BasicTypes.INT, BasicTypes.LONG);
+  private static final int OWNERS = 3;
+  private static final int TOKENS = 30;
+
+  private static BenchmarkNode node;
+
+  @BeforeAll
+  static void start() throws Exception {
+    node = TestNodes.start(OWNERS + 1);
+  }
+
+  @AfterAll
+  static void stop() throws Exception {
+    node.close();
+  }
+
+  @Test
+  void aMixedOwnerBatchBurnKeepsTheOrderOfTheIndex() throws Exception {
+    StorageReference burner = node.account(0);
+    List<StorageReference> owners = List.of(node.account(1), node.account(2), node.account(3));
+
+    StorageReference token = node.deploy(burner,
+      new ConstructorSignature(TOKEN, ClassType.STRING, ClassType.STRING, BasicTypes.BOOLEAN),
+      new StringValue("Enumerable"), new StringValue("ENM"), new BooleanValue(true)
+    );
+
+    TokenEvents events = new TokenEvents(node.node(), token);
+    NodeTokenView contract = new NodeTokenView(events);
+    OwnershipIndex index = new OwnershipIndex();
+
+    // The owners are interleaved, so that each owner list and the global list are burnt in different orders
+    Random random = new Random(7);
+    for (int tokenId = 0; tokenId < TOKENS; tokenId++) {
+      StorageReference owner = owners.get(random.nextInt(OWNERS));
+      apply(events, index, node.run(burner, MINT, token, owner, new LongValue(tokenId)));
+    }
+
+    for (StorageReference owner : owners) {
+      apply(events, index, node.run(owner, SET_APPROVAL_FOR_ALL, token, burner, new BooleanValue(true)));
+    }
+
+    TokenViews.assertSameEnumeration(contract, index, owners);
+
+    // From the tail down to the head, so that burnt tokens are moved by the burn itself
+    apply(events, index, node.run(burner, BURN_BATCH, token, new LongValue(28), new IntValue(9), new LongValue(-3)));
+    TokenViews.assertSameEnumeration(contract, index, owners);
+
+    apply(events, index, node.run(burner, BURN_BATCH, token, new LongValue(2), new IntValue(5), new LongValue(6)));
+    TokenViews.assertSameEnumeration(contract, index, owners);
+  }
+
+  private static void apply(TokenEvents events, OwnershipIndex index, TransactionReference transaction) throws Exception {
+    events.replay(transaction, index::apply);
+  }
+}
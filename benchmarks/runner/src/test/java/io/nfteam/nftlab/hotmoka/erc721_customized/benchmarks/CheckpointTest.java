@@ -0,0 +1,226 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks;
+
+import io.hotmoka.beans.references.TransactionReference;
+import io.hotmoka.beans.signatures.ConstructorSignature;
+import io.hotmoka.beans.signatures.VoidMethodSignature;
+import io.hotmoka.beans.types.BasicTypes;
+import io.hotmoka.beans.types.ClassType;
+import io.hotmoka.beans.values.BooleanValue;
+import io.hotmoka.beans.values.IntValue;
+import io.hotmoka.beans.values.LongValue;
+import io.hotmoka.beans.values.StorageReference;
+import io.hotmoka.beans.values.StringValue;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.NodeTokenView;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.TokenEvents;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.TokenURIView;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.TokenView;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.checkpoint.Checkpoint;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.index.OwnershipIndex;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that an index written as a checkpoint, reopened and brought up to date with
+ * the later events agrees with the contract.
+ */
+class CheckpointTest {
+  private static final ClassType TOKEN = new ClassType(TestNodes.CONTRACTS + "BenchmarkEnumerableToken");
+  private static final ClassType UBI = new ClassType("io.takamaka.code.math.UnsignedBigInteger");
+  private static final VoidMethodSignature MINT = new VoidMethodSignature(TOKEN, "mint", ClassType.CONTRACT, BasicTypes.LONG);
+  private static final VoidMethodSignature TRANSFER = new VoidMethodSignature(TOKEN, "transfer", ClassType.CONTRACT, BasicTypes.LONG);
+  private static final VoidMethodSignature BURN = new VoidMethodSignature(TOKEN, "burn", BasicTypes.LONG);
+  private static final VoidMethodSignature APPROVE = new VoidMethodSignature(TOKEN, "approve", ClassType.CONTRACT, UBI);
+  private static final VoidMethodSignature SET_APPROVAL_FOR_ALL =
+    new VoidMethodSignature(TOKEN, "setApprovalForAll", ClassType.CONTRACT, BasicTypes.BOOLEAN);
+  private static final VoidMethodSignature BURN_BATCH =
+    new VoidMethodSignature(TOKEN, "burnBatch", BasicTypes.LONG, BasicTypes.INT, BasicTypes.LONG);
+  private static final ClassType URI_TOKEN = new ClassType(TestNodes.CONTRACTS + "BenchmarkURIToken");
+  private static final VoidMethodSignature URI_MINT = new VoidMethodSignature(URI_TOKEN, "mint", ClassType.CONTRACT, BasicTypes.LONG);
+  private static final VoidMethodSignature URI_BURN = new VoidMethodSignature(URI_TOKEN, "burn", BasicTypes.LONG);
+  private static final VoidMethodSignature SET_TOKEN_URI =
+    new VoidMethodSignature(URI_TOKEN, "setTokenURI", BasicTypes.LONG, ClassType.STRING);
+  private static final int OWNERS = 3;
+  private static final int TOKENS = 24;
+  private static final int URI_TOKENS = 8;
+
+  private static BenchmarkNode node;
+
+  @BeforeAll
+  static void start() throws Exception {
+    node = TestNodes.start(OWNERS + 3);
+  }
+
+  @AfterAll
+  static void stop() throws Exception {
+    node.close();
+  }
+
+  @Test
+  void anIndexRestartedFromACheckpointAgreesWithTheContract(@TempDir Path dir) throws Exception {
+    StorageReference minter = node.account(0);
+    StorageReference approved = node.account(OWNERS + 1);
+    StorageReference newcomer = node.account(OWNERS + 2);
+    List<StorageReference> owners = List.of(node.account(1), node.account(2), node.account(3));
+    List<StorageReference> accounts = List.of(minter, owners.get(0), owners.get(1), owners.get(2), approved, newcomer);
+
+    StorageReference token = node.deploy(minter,
+      new ConstructorSignature(TOKEN, ClassType.STRING, ClassType.STRING, BasicTypes.BOOLEAN),
+      new StringValue("Enumerable"), new StringValue("ENM"), new BooleanValue(true)
+    );
+
+    TokenEvents events = new TokenEvents(node.node(), token);
+    NodeTokenView contract = new NodeTokenView(events);
+    OwnershipIndex index = new OwnershipIndex();
+
+    Random random = new Random(11);
+    for (int tokenId = 0; tokenId < TOKENS; tokenId++) {
+      apply(events, index, node.run(minter, MINT, token, owners.get(random.nextInt(OWNERS)), new LongValue(tokenId)));
+    }
+
+    // The minter can burn the tokens of every owner
+    for (StorageReference owner : owners) {
+      apply(events, index, node.run(owner, SET_APPROVAL_FOR_ALL, token, minter, new BooleanValue(true)));
+    }
+
+    apply(events, index, node.run(owners.get(2), SET_APPROVAL_FOR_ALL, token, owners.get(0), new BooleanValue(true)));
+    for (long tokenId = 0; tokenId < TOKENS; tokenId += 5) {
+      StorageReference owner = contract.ownerOf(BigInteger.valueOf(tokenId));
+      apply(events, index, node.run(owner, APPROVE, token, approved, events.referenceOf(BigInteger.valueOf(tokenId))));
+    }
+
+    apply(events, index, node.run(minter, BURN, token, new LongValue(owned(contract, 0, owners))));
+
+    Path first = dir.resolve("first");
+    index.checkpoint(first);
+    Checkpoint checkpoint = Checkpoint.open(first);
+    assertEquals(index.lastApplied(), checkpoint.lastEvent());
+    TokenViews.assertSameEnumeration(contract, checkpoint, accounts);
+    assertSameOperators(contract, checkpoint, accounts);
+
+    // The later events move and burn tokens of the checkpoint, clear its approvals and reach an account it does not know
+    OwnershipIndex restarted = new OwnershipIndex(checkpoint);
+    for (long tokenId = 1; tokenId < TOKENS; tokenId += 4) {
+      StorageReference owner = contract.ownerOf(BigInteger.valueOf(tokenId));
+      if (owner != null) {
+        apply(events, restarted, node.run(owner, TRANSFER, token, newcomer, new LongValue(tokenId)));
+      }
+    }
+
+    apply(events, restarted, node.run(minter, MINT, token, newcomer, new LongValue(TOKENS)));
+    apply(events, restarted, node.run(owners.get(1), SET_APPROVAL_FOR_ALL, token, minter, new BooleanValue(false)));
+    apply(events, restarted, node.run(newcomer, SET_APPROVAL_FOR_ALL, token, minter, new BooleanValue(true)));
+    apply(events, restarted, node.run(owners.get(1), SET_APPROVAL_FOR_ALL, token, minter, new BooleanValue(true)));
+    apply(events, restarted, node.run(minter, BURN_BATCH, token, new LongValue(TOKENS - 2), new IntValue(6), new LongValue(-4)));
+    apply(events, restarted, node.run(minter, BURN, token, new LongValue(owned(contract, 1, owners))));
+
+    TokenViews.assertSameEnumeration(contract, restarted, accounts);
+    assertSameOperators(contract, restarted, accounts);
+
+    // A checkpoint of the restarted index merges the changes into the first checkpoint
+    Path second = dir.resolve("second");
+    restarted.checkpoint(second);
+    Checkpoint merged = Checkpoint.open(second);
+    assertEquals(restarted.lastApplied(), merged.lastEvent());
+    TokenViews.assertSameEnumeration(contract, merged, accounts);
+    assertSameOperators(contract, merged, accounts);
+  }
+
+  @Test
+  void anIndexRestartedFromACheckpointAgreesWithTheContractOnTheURIs(@TempDir Path dir) throws Exception {
+    StorageReference minter = node.account(0);
+    StorageReference owner = node.account(1);
+
+    StorageReference token = node.deploy(minter,
+      new ConstructorSignature(URI_TOKEN, ClassType.STRING, ClassType.STRING, BasicTypes.BOOLEAN),
+      new StringValue("URIStorage"), new StringValue("URI"), new BooleanValue(true)
+    );
+
+    TokenEvents events = new TokenEvents(node.node(), token);
+    NodeTokenView contract = new NodeTokenView(events);
+    OwnershipIndex index = new OwnershipIndex();
+
+    // The even tokens have a URI, the odd ones have none
+    for (int tokenId = 0; tokenId < URI_TOKENS; tokenId++) {
+      apply(events, index, node.run(minter, URI_MINT, token, owner, new LongValue(tokenId)));
+    }
+
+    for (int tokenId = 0; tokenId < URI_TOKENS; tokenId += 2) {
+      apply(events, index, node.run(owner, SET_TOKEN_URI, token, new LongValue(tokenId), new StringValue("ipfs://first/" + tokenId)));
+    }
+
+    // A token burnt before the checkpoint loses its URI in the index
+    apply(events, index, node.run(owner, URI_BURN, token, new LongValue(2)));
+    assertSameURIs(contract, index, URI_TOKENS);
+
+    Path first = dir.resolve("first");
+    index.checkpoint(first);
+    Checkpoint checkpoint = Checkpoint.open(first);
+    assertEquals(index.lastApplied(), checkpoint.lastEvent());
+    assertSameURIs(contract, checkpoint, URI_TOKENS);
+
+    // The later events change and clear URIs of the checkpoint and give a URI to a token it does not know
+    OwnershipIndex restarted = new OwnershipIndex(checkpoint);
+    apply(events, restarted, node.run(owner, SET_TOKEN_URI, token, new LongValue(4), new StringValue("ipfs://second/4")));
+    apply(events, restarted, node.run(owner, SET_TOKEN_URI, token, new LongValue(5), new StringValue("ipfs://second/5")));
+    apply(events, restarted, node.run(owner, URI_BURN, token, new LongValue(6)));
+    apply(events, restarted, node.run(minter, URI_MINT, token, owner, new LongValue(URI_TOKENS)));
+    apply(events, restarted, node.run(owner, SET_TOKEN_URI, token, new LongValue(URI_TOKENS), new StringValue("ipfs://second/" + URI_TOKENS)));
+    assertSameURIs(contract, restarted, URI_TOKENS + 1);
+
+    // A checkpoint of the restarted index merges the changes into the first checkpoint
+    Path second = dir.resolve("second");
+    restarted.checkpoint(second);
+    Checkpoint merged = Checkpoint.open(second);
+    assertEquals(restarted.lastApplied(), merged.lastEvent());
+    assertSameURIs(contract, merged, URI_TOKENS + 1);
+  }
+
+  /**
+   * @return the first token of the enumeration that one of (@code owners) holds, from (@code from) on
+   */
+  private static long owned(NodeTokenView contract, int from, List<StorageReference> owners) {
+    for (BigInteger index = BigInteger.valueOf(from); ; index = index.add(BigInteger.ONE)) {
+      BigInteger tokenId = contract.tokenByIndex(index);
+      if (owners.contains(contract.ownerOf(tokenId))) {
+        return tokenId.longValue();
+      }
+    }
+  }
+
+  private static void assertSameOperators(NodeTokenView expected, TokenView actual, List<StorageReference> accounts) {
+    for (StorageReference owner : accounts) {
+      for (StorageReference operator : accounts) {
+        assertEquals(expected.isApprovedForAll(owner, operator), actual.isApprovedForAll(owner, operator),
+          "operator " + operator + " of " + owner);
+      }
+    }
+  }
+
+  /**
+   * Checks that (@code actual) agrees with the contract on the owner and the URI of the tokens from 0 to (@code tokens) excluded.
+   * The token has no base URI, hence it yields the empty string for a token whose URI was never set,
+   * where a view built from the events has no URI.
+   */
+  private static void assertSameURIs(NodeTokenView expected, TokenURIView actual, long tokens) {
+    for (long tokenId = 0; tokenId < tokens; tokenId++) {
+      BigInteger id = BigInteger.valueOf(tokenId);
+      assertEquals(expected.ownerOf(id), actual.ownerOf(id), "owner of token " + tokenId);
+
+      String uri = expected.tokenURI(id);
+      assertEquals(uri == null || uri.isEmpty() ? null : uri, actual.tokenURI(id), "URI of token " + tokenId);
+    }
+  }
+
+  private static void apply(TokenEvents events, OwnershipIndex index, TransactionReference transaction) throws Exception {
+    events.replay(transaction, index::apply);
+  }
+}
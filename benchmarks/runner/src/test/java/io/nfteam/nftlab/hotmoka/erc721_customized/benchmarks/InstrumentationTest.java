@@ -0,0 +1,67 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks;
+
+import io.hotmoka.beans.references.TransactionReference;
+import io.hotmoka.beans.responses.TransactionResponseWithEvents;
+import io.hotmoka.beans.signatures.ConstructorSignature;
+import io.hotmoka.beans.signatures.VoidMethodSignature;
+import io.hotmoka.beans.types.BasicTypes;
+import io.hotmoka.beans.types.ClassType;
+import io.hotmoka.beans.values.IntValue;
+import io.hotmoka.beans.values.LongValue;
+import io.hotmoka.beans.values.StorageReference;
+import io.hotmoka.beans.values.StringValue;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InstrumentationTest {
+  private static final String SUMMARY = "io.nfteam.nftlab.hotmoka.erc721_customized.ERC721Stats$Summary";
+  private static final ClassType TOKEN = new ClassType(TestNodes.CONTRACTS + "BenchmarkInstrumentedToken");
+  private static final VoidMethodSignature MINT = new VoidMethodSignature(TOKEN, "mint", ClassType.CONTRACT, BasicTypes.LONG);
+  private static final VoidMethodSignature MINT_BATCH =
+    new VoidMethodSignature(TOKEN, "mintBatch", ClassType.CONTRACT, BasicTypes.LONG, BasicTypes.INT);
+
+  private static BenchmarkNode node;
+
+  @BeforeAll
+  static void start() throws Exception {
+    node = TestNodes.start(1);
+  }
+
+  @AfterAll
+  static void stop() throws Exception {
+    node.close();
+  }
+
+  @Test
+  void aBatchThatCrossesTheIntervalEmitsASummary() throws Exception {
+    StorageReference minter = node.account(0);
+    StorageReference token = node.deploy(minter,
+      new ConstructorSignature(TOKEN, ClassType.STRING, ClassType.STRING, BasicTypes.LONG),
+      new StringValue("Instrumented"), new StringValue("INS"), new LongValue(3)
+    );
+
+    assertEquals(0, summaries(node.run(minter, MINT, token, minter, new LongValue(0))));
+
+    // From 1 to 5 operations: 3 is crossed without being reached
+    assertEquals(1, summaries(node.run(minter, MINT_BATCH, token, minter, new LongValue(1), new IntValue(4))));
+
+    // The next summary is due at 6, not at 8
+    assertEquals(1, summaries(node.run(minter, MINT, token, minter, new LongValue(5))));
+  }
+
+  private static long summaries(TransactionReference transaction) throws Exception {
+    var response = (TransactionResponseWithEvents) node.node().getResponse(transaction);
+
+    long count = 0;
+    for (StorageReference event : (Iterable<StorageReference>) response.getEvents()::iterator) {
+      if (node.node().getClassTag(event).clazz.name.equals(SUMMARY)) {
+        count++;
+      }
+    }
+
+    return count;
+  }
+}
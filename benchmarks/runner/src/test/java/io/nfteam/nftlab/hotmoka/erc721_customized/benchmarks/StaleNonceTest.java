@@ -0,0 +1,81 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks;
+
+import io.hotmoka.beans.signatures.ConstructorSignature;
+import io.hotmoka.beans.signatures.VoidMethodSignature;
+import io.hotmoka.beans.types.BasicTypes;
+import io.hotmoka.beans.types.ClassType;
+import io.hotmoka.beans.values.BooleanValue;
+import io.hotmoka.beans.values.LongValue;
+import io.hotmoka.beans.values.StorageReference;
+import io.hotmoka.beans.values.StringValue;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.NodeTokenView;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.TokenEvents;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.pipeline.BulkClient;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.pipeline.Operation;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.pipeline.Outcome;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a (@link BulkClient) whose lane starts with a stale nonce retries the rejected
+ * operations with the nonce read again from the node.
+ */
+class StaleNonceTest {
+  private static final ClassType TOKEN = new ClassType(TestNodes.CONTRACTS + "BenchmarkEnumerableToken");
+  private static final VoidMethodSignature MINT = new VoidMethodSignature(TOKEN, "mint", ClassType.CONTRACT, BasicTypes.LONG);
+  private static final int MINTS = 20;
+
+  private static BenchmarkNode node;
+
+  @BeforeAll
+  static void start() throws Exception {
+    node = TestNodes.start(2);
+  }
+
+  @AfterAll
+  static void stop() throws Exception {
+    node.close();
+  }
+
+  @Test
+  void aLaneWithAStaleNonceRecovers() throws Exception {
+    StorageReference deployer = node.account(0);
+    StorageReference payer = node.account(1);
+
+    StorageReference token = node.deploy(deployer,
+      new ConstructorSignature(TOKEN, ClassType.STRING, ClassType.STRING, BasicTypes.BOOLEAN),
+      new StringValue("Enumerable"), new StringValue("ENM"), new BooleanValue(true)
+    );
+
+    try (BulkClient client = new BulkClient(node.node(), node.classpath(), node.pipelineConfig().setRetryBackoffMillis(10).build())) {
+      client.addAccount(payer, node.signer(payer));
+
+      // A transaction sent outside the client consumes the nonce that the lane is about to use
+      node.run(payer, MINT, token, payer, new LongValue(0));
+
+      var operations = new ArrayList<Operation>();
+      for (long tokenId = 1; tokenId <= MINTS; tokenId++) {
+        operations.add(Operation.of("mint", payer, MINT, token, payer, new LongValue(tokenId)));
+      }
+
+      List<Outcome> outcomes = client.submitAll(operations);
+      for (Outcome outcome : outcomes) {
+        assertEquals(Outcome.Status.COMMITTED, outcome.status, outcome.toString());
+      }
+
+      assertTrue(client.report().retries() >= 1, "the rejected operation was not retried");
+      assertTrue(client.report().resyncs() >= 1, "the nonce was not read again");
+      assertEquals(0, client.report().rejected());
+    }
+
+    assertEquals(BigInteger.valueOf(MINTS + 1), new NodeTokenView(new TokenEvents(node.node(), token)).totalSupply());
+  }
+}
@@ -0,0 +1,24 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Starts the nodes of the tests, with the jars copied by the build into target/jars.
+ */
+final class TestNodes {
+  static final String CONTRACTS = "io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks.contracts.";
+
+  private static final Path JARS = Paths.get("target", "jars");
+
+  private TestNodes() {}
+
+  static BenchmarkNode start(int numberOfAccounts) throws Exception {
+    return new BenchmarkNode(
+      JARS.resolve("io-takamaka-code.jar"),
+      JARS.resolve("hotmoka-erc721-customized.jar"),
+      JARS.resolve("hotmoka-erc721-benchmarks-contracts.jar"),
+      numberOfAccounts
+    );
+  }
+}
@@ -0,0 +1,43 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.benchmarks;
+
+import io.hotmoka.beans.values.StorageReference;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.EnumerableTokenView;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Assertions on the views of a token.
+ */
+final class TokenViews {
+  private TokenViews() {}
+
+  /**
+   * Checks that two views agree on the owners, the approvals and the order of the enumerations of the token.
+   *
+   * @param accounts the accounts whose balance and tokens are compared
+   */
+  static void assertSameEnumeration(EnumerableTokenView expected, EnumerableTokenView actual, List<StorageReference> accounts) {
+    BigInteger totalSupply = expected.totalSupply();
+    assertEquals(totalSupply, actual.totalSupply(), "total supply");
+
+    for (BigInteger index = BigInteger.ZERO; index.compareTo(totalSupply) < 0; index = index.add(BigInteger.ONE)) {
+      BigInteger tokenId = expected.tokenByIndex(index);
+      assertEquals(tokenId, actual.tokenByIndex(index), "token at global index " + index);
+      assertEquals(expected.ownerOf(tokenId), actual.ownerOf(tokenId), "owner of token " + tokenId);
+      assertEquals(expected.getApproved(tokenId), actual.getApproved(tokenId), "approval of token " + tokenId);
+    }
+
+    for (StorageReference account : accounts) {
+      BigInteger balance = expected.balanceOf(account);
+      assertEquals(balance, actual.balanceOf(account), "balance of " + account);
+
+      for (BigInteger index = BigInteger.ZERO; index.compareTo(balance) < 0; index = index.add(BigInteger.ONE)) {
+        assertEquals(expected.tokenOfOwnerByIndex(account, index), actual.tokenOfOwnerByIndex(account, index),
+          "token at index " + index + " of " + account);
+      }
+    }
+  }
+}
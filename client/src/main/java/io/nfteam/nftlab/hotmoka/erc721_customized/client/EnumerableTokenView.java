@@ -0,0 +1,29 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client;
+
+import io.hotmoka.beans.values.StorageReference;
+
+import java.math.BigInteger;
+
+/**
+ * The off-chain counterpart of (@code IERC721EnumerableView).
+ */
+public interface EnumerableTokenView extends TokenView {
+  /**
+   * Returns the total amount of tokens stored by the contract.
+   */
+  BigInteger totalSupply();
+
+  /**
+   * Returns a token ID owned by `owner` at a given `index` of its token list.
+   *
+   * @throws IndexOutOfBoundsException if `index` is not smaller than the balance of `owner`
+   */
+  BigInteger tokenOfOwnerByIndex(StorageReference owner, BigInteger index);
+
+  /**
+   * Returns a token ID at a given `index` of all the tokens stored by the contract.
+   *
+   * @throws IndexOutOfBoundsException if `index` is not smaller than the total supply
+   */
+  BigInteger tokenByIndex(BigInteger index);
+}
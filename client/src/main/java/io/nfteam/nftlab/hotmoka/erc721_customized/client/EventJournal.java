@@ -0,0 +1,70 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client;
+
+import io.hotmoka.beans.references.LocalTransactionReference;
+import io.hotmoka.beans.references.TransactionReference;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An append-only file with the transactions that generated events of a token, one hash per line.
+ * A node can be asked for the response of a transaction, but not for the list of its past
+ * transactions: the journal is what allows a client to rebuild its state from the store
+ * of the node, by replaying the responses of the journaled transactions in order.
+ */
+public class EventJournal implements AutoCloseable {
+  private final Path path;
+  private final BufferedWriter writer;
+  private TransactionReference last;
+
+  /**
+   * Opens the journal at the given path, creating it if missing.
+   */
+  public EventJournal(Path path) throws IOException {
+    this.path = path;
+
+    List<TransactionReference> transactions = transactions();
+    this.last = transactions.isEmpty() ? null : transactions.get(transactions.size() - 1);
+    this.writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+  /**
+   * Yields the journaled transactions, in the order they were appended.
+   */
+  public synchronized List<TransactionReference> transactions() throws IOException {
+    List<TransactionReference> transactions = new ArrayList<>();
+    if (Files.exists(path)) {
+      for (String line : Files.readAllLines(path, StandardCharsets.US_ASCII)) {
+        if (!line.isBlank()) {
+          transactions.add(new LocalTransactionReference(line.trim()));
+        }
+      }
+    }
+
+    return transactions;
+  }
+
+  /**
+   * Appends a transaction to the journal. Since a transaction can generate many events,
+   * appending the last journaled transaction again has no effect.
+   */
+  public synchronized void append(TransactionReference transaction) throws IOException {
+    if (!transaction.equals(last)) {
+      writer.write(transaction.getHash());
+      writer.newLine();
+      writer.flush();
+      last = transaction;
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    writer.close();
+  }
+}
@@ -0,0 +1,183 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client;
+
+import io.hotmoka.beans.TransactionException;
+import io.hotmoka.beans.signatures.NonVoidMethodSignature;
+import io.hotmoka.beans.types.BasicTypes;
+import io.hotmoka.beans.types.ClassType;
+import io.hotmoka.beans.values.BooleanValue;
+import io.hotmoka.beans.values.IntValue;
+import io.hotmoka.beans.values.StorageReference;
+import io.hotmoka.beans.values.StorageValue;
+import io.hotmoka.beans.values.StringValue;
+
+import java.math.BigInteger;
+
+/**
+ * Answers the views of a token by running view transactions on the node, one or two for each query.
+ *
+ * The token expects token ids as objects of the node: they are taken from the events
+ * of the token, see (@link TokenEvents#referenceOf(BigInteger)). A token id that no event
+ * carried cannot be passed to the token, hence the views about it throw a (@link TokenViewException)
+ * instead of reporting it as nonexistent; they can be answered once the events of the token,
+ * up to its mint, have been decoded by the (@link TokenEvents) of this view.
+ */
+public class NodeTokenView implements EnumerableTokenView, TokenURIView {
+  private static final ClassType IERC721_VIEW = new ClassType("io.nfteam.nftlab.hotmoka.erc721_customized.IERC721View");
+  private static final ClassType ENUMERABLE_VIEW =
+    new ClassType("io.nfteam.nftlab.hotmoka.erc721_customized.extensions.IERC721EnumerableView");
+  private static final ClassType UBI = TokenEvents.UNSIGNED_BIG_INTEGER;
+
+  private static final NonVoidMethodSignature BALANCE_OF =
+    new NonVoidMethodSignature(IERC721_VIEW, "balanceOf", UBI, ClassType.CONTRACT);
+  private static final NonVoidMethodSignature OWNER_OF =
+    new NonVoidMethodSignature(IERC721_VIEW, "ownerOf", ClassType.CONTRACT, UBI);
+  private static final NonVoidMethodSignature GET_APPROVED =
+    new NonVoidMethodSignature(IERC721_VIEW, "getApproved", ClassType.CONTRACT, UBI);
+  private static final NonVoidMethodSignature IS_APPROVED_FOR_ALL =
+    new NonVoidMethodSignature(IERC721_VIEW, "isApprovedForAll", BasicTypes.BOOLEAN, ClassType.CONTRACT, ClassType.CONTRACT);
+  private static final NonVoidMethodSignature TOTAL_SUPPLY =
+    new NonVoidMethodSignature(ENUMERABLE_VIEW, "totalSupply", UBI);
+  private static final NonVoidMethodSignature TOKENS_OF_OWNER =
+    new NonVoidMethodSignature(ENUMERABLE_VIEW, "tokensOfOwner", TokenEvents.STORAGE_ARRAY_VIEW, ClassType.CONTRACT, BasicTypes.INT, BasicTypes.INT);
+  private static final NonVoidMethodSignature TOKENS_BY_RANGE =
+    new NonVoidMethodSignature(ENUMERABLE_VIEW, "tokensByRange", TokenEvents.STORAGE_ARRAY_VIEW, BasicTypes.INT, BasicTypes.INT);
+
+  private final TokenEvents events;
+
+  /**
+   * @param events the events of the token, that also provide the objects of its token ids
+   */
+  public NodeTokenView(TokenEvents events) {
+    this.events = events;
+  }
+
+  @Override
+  public BigInteger balanceOf(StorageReference owner) {
+    try {
+      return events.tokenIdOf((StorageReference) view(BALANCE_OF, owner));
+    }
+    catch (Exception e) {
+      throw new TokenViewException("cannot read the balance of " + owner, e);
+    }
+  }
+
+  @Override
+  public StorageReference ownerOf(BigInteger tokenId) {
+    return accountOrNull(OWNER_OF, tokenId);
+  }
+
+  @Override
+  public StorageReference getApproved(BigInteger tokenId) {
+    return accountOrNull(GET_APPROVED, tokenId);
+  }
+
+  @Override
+  public boolean isApprovedForAll(StorageReference owner, StorageReference operator) {
+    try {
+      return ((BooleanValue) view(IS_APPROVED_FOR_ALL, owner, operator)).value;
+    }
+    catch (Exception e) {
+      throw new TokenViewException("cannot read the operators of " + owner, e);
+    }
+  }
+
+  @Override
+  public BigInteger totalSupply() {
+    try {
+      return events.tokenIdOf((StorageReference) view(TOTAL_SUPPLY));
+    }
+    catch (Exception e) {
+      throw new TokenViewException("cannot read the total supply", e);
+    }
+  }
+
+  @Override
+  public BigInteger tokenOfOwnerByIndex(StorageReference owner, BigInteger index) {
+    return single(TOKENS_OF_OWNER, index, owner, new IntValue(toInt(index)), new IntValue(1));
+  }
+
+  @Override
+  public BigInteger tokenByIndex(BigInteger index) {
+    return single(TOKENS_BY_RANGE, index, new IntValue(toInt(index)), new IntValue(1));
+  }
+
+  @Override
+  public String tokenURI(BigInteger tokenId) {
+    StorageReference reference = referenceOf(tokenId);
+
+    try {
+      return ((StringValue) view(TokenEvents.TOKEN_URI, reference)).value;
+    }
+    catch (TransactionException e) {
+      // The token rejects the queries about nonexistent tokens
+      return null;
+    }
+    catch (Exception e) {
+      throw new TokenViewException("cannot read the URI of token " + tokenId, e);
+    }
+  }
+
+  private StorageReference accountOrNull(NonVoidMethodSignature method, BigInteger tokenId) {
+    StorageReference reference = referenceOf(tokenId);
+
+    try {
+      StorageValue result = view(method, reference);
+
+      return result instanceof StorageReference ? (StorageReference) result : null;
+    }
+    catch (TransactionException e) {
+      // The token rejects the queries about nonexistent tokens
+      return null;
+    }
+    catch (Exception e) {
+      throw new TokenViewException("cannot run " + method.methodName + " for token " + tokenId, e);
+    }
+  }
+
+  /**
+   * Yields the object of the node for (@code tokenId).
+   *
+   * @throws TokenViewException if no event carried (@code tokenId), since then it is unknown
+   *                            whether the token exists
+   */
+  private StorageReference referenceOf(BigInteger tokenId) {
+    StorageReference reference = events.referenceOf(tokenId);
+    if (reference == null) {
+      throw new TokenViewException("cannot query token " + tokenId + ", since no event of the token carried it");
+    }
+
+    return reference;
+  }
+
+  /**
+   * Runs a paging method for a page of one element and yields that element.
+   */
+  private BigInteger single(NonVoidMethodSignature method, BigInteger index, StorageValue... actuals) {
+    try {
+      StorageReference page = (StorageReference) view(method, actuals);
+      if (((IntValue) events.view(TokenEvents.LENGTH, page)).value == 0) {
+        throw new IndexOutOfBoundsException("index " + index + " out of bounds");
+      }
+
+      return events.tokenIdOf((StorageReference) events.view(TokenEvents.GET, page, new IntValue(0)));
+    }
+    catch (IndexOutOfBoundsException e) {
+      throw e;
+    }
+    catch (Exception e) {
+      throw new TokenViewException("cannot run " + method.methodName, e);
+    }
+  }
+
+  private StorageValue view(NonVoidMethodSignature method, StorageValue... actuals) throws Exception {
+    return events.view(method, events.token(), actuals);
+  }
+
+  private static int toInt(BigInteger index) {
+    if (index.signum() < 0 || index.bitLength() >= 32) {
+      throw new IndexOutOfBoundsException("index " + index + " out of bounds");
+    }
+
+    return index.intValue();
+  }
+}
@@ -0,0 +1,122 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client;
+
+import io.hotmoka.beans.values.StorageReference;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * An event of a token, decoded from the node. Single and batched transfers are both
+ * represented as a (@link Kind#TRANSFER) of one or more tokens.
+ */
+public final class TokenEvent {
+  public enum Kind {
+    /**
+     * Tokens moved from (@code from), null for mints, to (@code to), null for burns.
+     */
+    TRANSFER,
+
+    /**
+     * (@code from) approved (@code to), null to clear, for the token.
+     */
+    APPROVAL,
+
+    /**
+     * (@code from) enabled or disabled (@code to) as operator, according to (@code approved).
+     */
+    APPROVAL_FOR_ALL,
+
+    /**
+     * (@code from) removed all of its operators.
+     */
+    ALL_OPERATORS_REVOKED,
+
+    /**
+     * The URI of the token changed.
+     */
+    METADATA_UPDATE
+  }
+
+  public final Kind kind;
+
+  /**
+   * The event object in the node; its transaction identifies when the event happened.
+   */
+  public final StorageReference reference;
+
+  public final StorageReference from;
+  public final StorageReference to;
+  public final boolean approved;
+
+  /**
+   * For (@link Kind#METADATA_UPDATE), the URI of the token when the event was decoded, or null if the
+   * token rejected the query, since it was burnt meanwhile. A later update of the URI can already
+   * be visible, but its own event follows.
+   */
+  public final String uri;
+
+  // Either an explicit list of tokens, or the inclusive range from firstTokenId to lastTokenId
+  private final List<BigInteger> tokenIds;
+  private final BigInteger firstTokenId;
+  private final BigInteger lastTokenId;
+
+  private TokenEvent(Kind kind, StorageReference reference, StorageReference from, StorageReference to, boolean approved,
+                     String uri, List<BigInteger> tokenIds, BigInteger firstTokenId, BigInteger lastTokenId) {
+    this.kind = kind;
+    this.reference = reference;
+    this.from = from;
+    this.to = to;
+    this.approved = approved;
+    this.uri = uri;
+    this.tokenIds = tokenIds;
+    this.firstTokenId = firstTokenId;
+    this.lastTokenId = lastTokenId;
+  }
+
+  static TokenEvent transfer(StorageReference reference, StorageReference from, StorageReference to, List<BigInteger> tokenIds) {
+    return new TokenEvent(Kind.TRANSFER, reference, from, to, false, null, List.copyOf(tokenIds), null, null);
+  }
+
+  static TokenEvent transfer(StorageReference reference, StorageReference from, StorageReference to,
+                             BigInteger firstTokenId, BigInteger lastTokenId) {
+    return new TokenEvent(Kind.TRANSFER, reference, from, to, false, null, null, firstTokenId, lastTokenId);
+  }
+
+  static TokenEvent approval(StorageReference reference, StorageReference owner, StorageReference approved, BigInteger tokenId) {
+    return new TokenEvent(Kind.APPROVAL, reference, owner, approved, false, null, List.of(tokenId), null, null);
+  }
+
+  static TokenEvent approvalForAll(StorageReference reference, StorageReference owner, StorageReference operator, boolean approved) {
+    return new TokenEvent(Kind.APPROVAL_FOR_ALL, reference, owner, operator, approved, null, List.of(), null, null);
+  }
+
+  static TokenEvent allOperatorsRevoked(StorageReference reference, StorageReference owner) {
+    return new TokenEvent(Kind.ALL_OPERATORS_REVOKED, reference, owner, null, false, null, List.of(), null, null);
+  }
+
+  static TokenEvent metadataUpdate(StorageReference reference, BigInteger tokenId, String uri) {
+    return new TokenEvent(Kind.METADATA_UPDATE, reference, null, null, false, uri, List.of(tokenId), null, null);
+  }
+
+  /**
+   * Feeds the tokens of this event to the given action, in order. Ranges are expanded lazily.
+   */
+  public void forEachTokenId(Consumer<BigInteger> action) {
+    if (tokenIds != null) {
+      tokenIds.forEach(action);
+    } else {
+      for (BigInteger tokenId = firstTokenId; tokenId.compareTo(lastTokenId) <= 0; tokenId = tokenId.add(BigInteger.ONE)) {
+        action.accept(tokenId);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    String tokens = tokenIds != null ? tokenIds.toString() : "[" + firstTokenId + ".." + lastTokenId + "]";
+
+    return kind + "(" + from + ", " + to + ", " + tokens + (kind == Kind.APPROVAL_FOR_ALL ? ", " + approved : "")
+      + (kind == Kind.METADATA_UPDATE ? ", " + uri : "") + ")";
+  }
+}
@@ -0,0 +1,218 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client;
+
+import io.hotmoka.beans.TransactionException;
+import io.hotmoka.beans.references.TransactionReference;
+import io.hotmoka.beans.requests.InstanceMethodCallTransactionRequest;
+import io.hotmoka.beans.responses.TransactionResponseWithEvents;
+import io.hotmoka.beans.signatures.NonVoidMethodSignature;
+import io.hotmoka.beans.types.BasicTypes;
+import io.hotmoka.beans.types.ClassType;
+import io.hotmoka.beans.updates.UpdateOfField;
+import io.hotmoka.beans.values.BigIntegerValue;
+import io.hotmoka.beans.values.BooleanValue;
+import io.hotmoka.beans.values.IntValue;
+import io.hotmoka.beans.values.StorageReference;
+import io.hotmoka.beans.values.StorageValue;
+import io.hotmoka.beans.values.StringValue;
+import io.hotmoka.nodes.Node;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Reads the events of a token from a node and decodes them into (@link TokenEvent)s.
+ * Events can be read live, through a subscription, or replayed from the responses of
+ * past transactions kept in the store of the node.
+ */
+public class TokenEvents {
+  private static final String IERC721 = "io.nfteam.nftlab.hotmoka.erc721_customized.IERC721$";
+  private static final String METADATA_UPDATE = "io.nfteam.nftlab.hotmoka.erc721_customized.IERC721Metadata$MetadataUpdate";
+  static final ClassType UNSIGNED_BIG_INTEGER = new ClassType("io.takamaka.code.math.UnsignedBigInteger");
+  static final ClassType STORAGE_ARRAY_VIEW = new ClassType("io.takamaka.code.util.StorageArrayView");
+  private static final ClassType URI_STORAGE_VIEW =
+    new ClassType("io.nfteam.nftlab.hotmoka.erc721_customized.extensions.IERC721URIStorageView");
+  private static final NonVoidMethodSignature TO_BIG_INTEGER =
+    new NonVoidMethodSignature(UNSIGNED_BIG_INTEGER, "toBigInteger", ClassType.BIG_INTEGER);
+  static final NonVoidMethodSignature LENGTH =
+    new NonVoidMethodSignature(STORAGE_ARRAY_VIEW, "length", BasicTypes.INT);
+  static final NonVoidMethodSignature GET =
+    new NonVoidMethodSignature(STORAGE_ARRAY_VIEW, "get", ClassType.OBJECT, BasicTypes.INT);
+  static final NonVoidMethodSignature TOKEN_URI =
+    new NonVoidMethodSignature(URI_STORAGE_VIEW, "tokenURI", ClassType.STRING, UNSIGNED_BIG_INTEGER);
+  private static final BigInteger VIEW_GAS = BigInteger.valueOf(100_000);
+
+  private final Node node;
+  private final StorageReference token;
+  private final StorageReference manifest;
+  private final TransactionReference takamakaCode;
+
+  // Token ids are immutable objects, hence their values can be cached forever
+  private final Map<StorageReference, BigInteger> tokenIds = new ConcurrentHashMap<>();
+
+  // An object in the node for each token id seen in the events, to pass token ids to the token
+  private final Map<BigInteger, StorageReference> references = new ConcurrentHashMap<>();
+
+  /**
+   * @param node the node that holds the token
+   * @param token the token contract whose events are read
+   */
+  public TokenEvents(Node node, StorageReference token) throws Exception {
+    this.node = node;
+    this.token = token;
+    this.manifest = node.getManifest();
+    this.takamakaCode = node.getTakamakaCode();
+  }
+
+  public StorageReference token() {
+    return token;
+  }
+
+  /**
+   * Feeds to (@code consumer) the events of the token generated by the given transaction, in order.
+   */
+  public void replay(TransactionReference transaction, Consumer<TokenEvent> consumer) throws Exception {
+    var response = node.getResponse(transaction);
+    if (!(response instanceof TransactionResponseWithEvents)) {
+      return;
+    }
+
+    for (StorageReference event : (Iterable<StorageReference>) ((TransactionResponseWithEvents) response).getEvents()::iterator) {
+      Map<String, StorageValue> fields = fieldsOf(event);
+      if (token.equals(fields.get("creator"))) {
+        decode(event, fields).ifPresent(consumer);
+      }
+    }
+  }
+
+  /**
+   * Feeds to (@code consumer) the events of the token as they are generated.
+   * Events that cannot be decoded are reported to (@code onError) and skipped.
+   *
+   * @return the subscription, to close in order to stop receiving events
+   */
+  public Node.Subscription subscribe(Consumer<TokenEvent> consumer, Consumer<Exception> onError) {
+    return node.subscribeToEvents(token, (creator, event) -> {
+      try {
+        decode(event, fieldsOf(event)).ifPresent(consumer);
+      }
+      catch (Exception e) {
+        onError.accept(e);
+      }
+    });
+  }
+
+  /**
+   * Yields the value of a token id object of the node.
+   */
+  public BigInteger tokenIdOf(StorageReference tokenId) throws Exception {
+    BigInteger value = tokenIds.get(tokenId);
+    if (value == null) {
+      value = ((BigIntegerValue) view(TO_BIG_INTEGER, tokenId)).value;
+      tokenIds.put(tokenId, value);
+      references.putIfAbsent(value, tokenId);
+    }
+
+    return value;
+  }
+
+  /**
+   * Yields an object of the node whose value is (@code tokenId). Objects are created
+   * by transactions only, hence this is known for the token ids carried by the decoded
+   * events and the objects passed to (@link #tokenIdOf(StorageReference)).
+   *
+   * @return the object, or null if no object with that value has been seen
+   */
+  public StorageReference referenceOf(BigInteger tokenId) {
+    return references.get(tokenId);
+  }
+
+  private Optional<TokenEvent> decode(StorageReference event, Map<String, StorageValue> fields) throws Exception {
+    String name = node.getClassTag(event).clazz.name;
+    if (name.equals(METADATA_UPDATE)) {
+      StorageReference tokenId = (StorageReference) fields.get("tokenId");
+
+      return Optional.of(TokenEvent.metadataUpdate(event, tokenIdOf(tokenId), uriOf(tokenId)));
+    }
+    if (!name.startsWith(IERC721)) {
+      return Optional.empty();
+    }
+
+    switch (name.substring(IERC721.length())) {
+      case "Transfer":
+        return Optional.of(TokenEvent.transfer(event, account(fields, "from"), account(fields, "to"),
+          List.of(tokenIdOf((StorageReference) fields.get("tokenId")))));
+      case "TransferBatch":
+        return Optional.of(TokenEvent.transfer(event, account(fields, "from"), account(fields, "to"),
+          tokenIdsOf((StorageReference) fields.get("tokenIds"))));
+      case "ConsecutiveTransfer":
+        return Optional.of(TokenEvent.transfer(event, account(fields, "from"), account(fields, "to"),
+          tokenIdOf((StorageReference) fields.get("fromTokenId")), tokenIdOf((StorageReference) fields.get("toTokenId"))));
+      case "Approval":
+        return Optional.of(TokenEvent.approval(event, account(fields, "owner"), account(fields, "approved"),
+          tokenIdOf((StorageReference) fields.get("tokenId"))));
+      case "ApprovalForAll":
+        return Optional.of(TokenEvent.approvalForAll(event, account(fields, "owner"), account(fields, "operator"),
+          ((BooleanValue) fields.get("approved")).value));
+      case "AllOperatorsRevoked":
+        return Optional.of(TokenEvent.allOperatorsRevoked(event, account(fields, "owner")));
+      default:
+        return Optional.empty();
+    }
+  }
+
+  private List<BigInteger> tokenIdsOf(StorageReference array) throws Exception {
+    int length = ((IntValue) view(LENGTH, array)).value;
+
+    List<BigInteger> result = new ArrayList<>(length);
+    for (int i = 0; i < length; i++) {
+      result.add(tokenIdOf((StorageReference) view(GET, array, new IntValue(i))));
+    }
+
+    return result;
+  }
+
+  /**
+   * Reads the current URI of a token id object of the node.
+   *
+   * @return the URI, or null if the token rejects the query, since the token does not exist
+   */
+  private String uriOf(StorageReference tokenId) throws Exception {
+    try {
+      return ((StringValue) view(TOKEN_URI, token, tokenId)).value;
+    }
+    catch (TransactionException e) {
+      return null;
+    }
+  }
+
+  private static StorageReference account(Map<String, StorageValue> fields, String name) {
+    StorageValue value = fields.get(name);
+
+    return value instanceof StorageReference ? (StorageReference) value : null;
+  }
+
+  private Map<String, StorageValue> fieldsOf(StorageReference object) throws Exception {
+    Map<String, StorageValue> fields = new HashMap<>();
+    node.getState(object)
+      .filter(update -> update instanceof UpdateOfField)
+      .map(update -> (UpdateOfField) update)
+      .forEach(update -> fields.put(update.getField().name, update.getValue()));
+
+    return fields;
+  }
+
+  /**
+   * Runs a view method of an object of the node, paid by nobody.
+   */
+  StorageValue view(NonVoidMethodSignature method, StorageReference receiver, StorageValue... actuals) throws Exception {
+    return node.runInstanceMethodCallTransaction(new InstanceMethodCallTransactionRequest(
+      manifest, VIEW_GAS, takamakaCode, method, receiver, actuals
+    ));
+  }
+}
@@ -0,0 +1,13 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client;
+
+import java.math.BigInteger;
+
+/**
+ * The off-chain counterpart of (@code IERC721URIStorageView).
+ */
+public interface TokenURIView extends TokenView {
+  /**
+   * @return the URI of (@code tokenId), or null if the token does not exist
+   */
+  String tokenURI(BigInteger tokenId);
+}
@@ -0,0 +1,36 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client;
+
+import io.hotmoka.beans.values.StorageReference;
+
+import java.math.BigInteger;
+
+/**
+ * The off-chain counterpart of (@code IERC721View): accounts are storage references
+ * in the node and token ids are plain integers.
+ */
+public interface TokenView {
+  /**
+   * @param owner: account whose balance you want to check
+   * @return the number of tokens owned by (@code owner)
+   */
+  BigInteger balanceOf(StorageReference owner);
+
+  /**
+   * @param tokenId: token index whose owner you want to check
+   * @return the owner of (@code tokenId), or null if the token does not exist
+   */
+  StorageReference ownerOf(BigInteger tokenId);
+
+  /**
+   * @param tokenId: token index whose account approved you want to know
+   * @return the account approved for (@code tokenId), or null if there is none
+   */
+  StorageReference getApproved(BigInteger tokenId);
+
+  /**
+   * @param owner: owner of a token
+   * @param operator: account whose you want to check if it's approved
+   * @return if the (@code operator) is allowed to manage all of the assets of (@code owner)
+   */
+  boolean isApprovedForAll(StorageReference owner, StorageReference operator);
+}
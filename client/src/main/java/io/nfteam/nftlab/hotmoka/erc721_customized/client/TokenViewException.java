@@ -0,0 +1,15 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client;
+
+/**
+ * Thrown when a view of a token cannot be answered, because the node could not be queried
+ * or the query could not be expressed for the node.
+ */
+public class TokenViewException extends RuntimeException {
+  public TokenViewException(String message) {
+    super(message);
+  }
+
+  public TokenViewException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
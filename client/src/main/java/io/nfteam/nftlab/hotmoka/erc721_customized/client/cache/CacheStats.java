@@ -0,0 +1,40 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client.cache;
+
+/**
+ * The counters of a cache, at a given moment.
+ */
+public final class CacheStats {
+  public final long hits;
+  public final long misses;
+  public final long evictions;
+  public final long invalidations;
+
+  public CacheStats(long hits, long misses, long evictions, long invalidations) {
+    this.hits = hits;
+    this.misses = misses;
+    this.evictions = evictions;
+    this.invalidations = invalidations;
+  }
+
+  /**
+   * @return the fraction of lookups answered by the cache, 0 if there were none
+   */
+  public double hitRate() {
+    long lookups = hits + misses;
+
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  /**
+   * Yields the sum of these counters and of the given ones.
+   */
+  public CacheStats plus(CacheStats other) {
+    return new CacheStats(hits + other.hits, misses + other.misses, evictions + other.evictions, invalidations + other.invalidations);
+  }
+
+  @Override
+  public String toString() {
+    return "hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", invalidations=" + invalidations
+      + String.format(", hit rate=%.2f%%", hitRate() * 100);
+  }
+}
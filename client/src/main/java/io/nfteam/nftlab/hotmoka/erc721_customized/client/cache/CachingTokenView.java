@@ -0,0 +1,189 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client.cache;
+
+import io.hotmoka.beans.values.StorageReference;
+import io.hotmoka.nodes.Node;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.EnumerableTokenView;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.TokenEvent;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.TokenEvents;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.TokenURIView;
+
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A caching proxy of the views of a token. The results of (@code ownerOf), (@code balanceOf),
+ * (@code getApproved), (@code isApprovedForAll) and (@code tokenURI) are kept in bounded LRU caches
+ * and invalidated precisely by the events of the token, instead of expiring after some time:
+ *
+ * - a transfer invalidates the owner, the approval and the URI of its tokens and the balances of both accounts;
+ * - an approval invalidates the approval of its token;
+ * - an approval for all, or a revocation of all operators, invalidates the operators of the owner;
+ * - a metadata update invalidates the URI of its token.
+ *
+ * The enumeration views are not cached, since a single mint or burn can move any index.
+ * A view that fails, such as with a (@link io.nfteam.nftlab.hotmoka.erc721_customized.client.TokenViewException),
+ * caches nothing.
+ * The token must generate all its events, see (@code EventPolicy.ALL).
+ */
+public class CachingTokenView implements EnumerableTokenView, TokenURIView {
+  private final EnumerableTokenView enumerableBackend;
+  private final TokenURIView uriBackend;
+
+  private final LruCache<BigInteger, StorageReference> owners;
+  private final LruCache<StorageReference, BigInteger> balances;
+  private final LruCache<BigInteger, StorageReference> tokenApprovals;
+  private final LruCache<OperatorKey, Boolean> operatorApprovals;
+  private final LruCache<BigInteger, String> tokenURIs;
+
+  /**
+   * @param backend the views to cache, typically queried from the node
+   * @param capacity the maximal number of entries of the cache of each view
+   */
+  public <V extends EnumerableTokenView & TokenURIView> CachingTokenView(V backend, int capacity) {
+    this.enumerableBackend = backend;
+    this.uriBackend = backend;
+    this.owners = new LruCache<>(capacity);
+    this.balances = new LruCache<>(capacity);
+    this.tokenApprovals = new LruCache<>(capacity);
+    this.operatorApprovals = new LruCache<>(capacity);
+    this.tokenURIs = new LruCache<>(capacity);
+  }
+
+  private static final class OperatorKey {
+    private final StorageReference owner;
+    private final StorageReference operator;
+
+    private OperatorKey(StorageReference owner, StorageReference operator) {
+      this.owner = owner;
+      this.operator = operator;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof OperatorKey
+        && ((OperatorKey) other).owner.equals(owner) && ((OperatorKey) other).operator.equals(operator);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(owner, operator);
+    }
+  }
+
+  /**
+   * Starts invalidating this cache with the events of the token. If an event cannot be
+   * decoded, the whole cache is dropped, since it is unknown what the event changed.
+   *
+   * @return the subscription, to close in order to stop following the token
+   */
+  public Node.Subscription follow(TokenEvents events) {
+    return events.subscribe(this::invalidate, e -> invalidateAll());
+  }
+
+  /**
+   * Drops the entries that the given event of the token made stale.
+   */
+  public void invalidate(TokenEvent event) {
+    switch (event.kind) {
+      case TRANSFER:
+        event.forEachTokenId(tokenId -> {
+          owners.invalidate(tokenId);
+          tokenApprovals.invalidate(tokenId);
+          tokenURIs.invalidate(tokenId);
+        });
+        if (event.from != null) {
+          balances.invalidate(event.from);
+        }
+        if (event.to != null) {
+          balances.invalidate(event.to);
+        }
+        break;
+      case APPROVAL:
+        event.forEachTokenId(tokenApprovals::invalidate);
+        break;
+      case APPROVAL_FOR_ALL:
+        operatorApprovals.invalidate(new OperatorKey(event.from, event.to));
+        break;
+      case ALL_OPERATORS_REVOKED:
+        operatorApprovals.invalidateIf(key -> key.owner.equals(event.from));
+        break;
+      case METADATA_UPDATE:
+        event.forEachTokenId(tokenURIs::invalidate);
+        break;
+    }
+  }
+
+  /**
+   * Drops all entries, for instance after the connection to the node was lost and events might have been missed.
+   */
+  public void invalidateAll() {
+    owners.invalidateAll();
+    balances.invalidateAll();
+    tokenApprovals.invalidateAll();
+    operatorApprovals.invalidateAll();
+    tokenURIs.invalidateAll();
+  }
+
+  /**
+   * @return the counters of the caches of all views together
+   */
+  public CacheStats stats() {
+    return statsByView().values().stream().reduce(new CacheStats(0, 0, 0, 0), CacheStats::plus);
+  }
+
+  /**
+   * @return the counters of the cache of each view, by name of the view
+   */
+  public Map<String, CacheStats> statsByView() {
+    Map<String, CacheStats> stats = new LinkedHashMap<>();
+    stats.put("ownerOf", owners.stats());
+    stats.put("balanceOf", balances.stats());
+    stats.put("getApproved", tokenApprovals.stats());
+    stats.put("isApprovedForAll", operatorApprovals.stats());
+    stats.put("tokenURI", tokenURIs.stats());
+
+    return stats;
+  }
+
+  @Override
+  public BigInteger balanceOf(StorageReference owner) {
+    return balances.get(owner, enumerableBackend::balanceOf);
+  }
+
+  @Override
+  public StorageReference ownerOf(BigInteger tokenId) {
+    return owners.get(tokenId, enumerableBackend::ownerOf);
+  }
+
+  @Override
+  public StorageReference getApproved(BigInteger tokenId) {
+    return tokenApprovals.get(tokenId, enumerableBackend::getApproved);
+  }
+
+  @Override
+  public boolean isApprovedForAll(StorageReference owner, StorageReference operator) {
+    return operatorApprovals.get(new OperatorKey(owner, operator), key -> enumerableBackend.isApprovedForAll(key.owner, key.operator));
+  }
+
+  @Override
+  public String tokenURI(BigInteger tokenId) {
+    return tokenURIs.get(tokenId, uriBackend::tokenURI);
+  }
+
+  @Override
+  public BigInteger totalSupply() {
+    return enumerableBackend.totalSupply();
+  }
+
+  @Override
+  public BigInteger tokenOfOwnerByIndex(StorageReference owner, BigInteger index) {
+    return enumerableBackend.tokenOfOwnerByIndex(owner, index);
+  }
+
+  @Override
+  public BigInteger tokenByIndex(BigInteger index) {
+    return enumerableBackend.tokenByIndex(index);
+  }
+}
@@ -0,0 +1,93 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A read-through cache that keeps at most a given number of entries, evicting the least recently used.
+ * Null values are cached as well, since a missing token is as worth remembering as an existing one.
+ *
+ * Values are loaded outside the lock, so that a slow load does not block the other lookups.
+ * A value loaded while an invalidation happened might predate it, hence it is returned but not cached.
+ */
+final class LruCache<K, V> {
+  private static final Object NULL = new Object();
+
+  private final Map<K, Object> entries;
+  private long invalidationsCount;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  LruCache(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("the capacity must be positive");
+    }
+
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, Object> eldest) {
+        if (size() > capacity) {
+          evictions++;
+          return true;
+        }
+
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Yields the value cached for (@code key), loading it with (@code loader) if missing.
+   */
+  @SuppressWarnings("unchecked")
+  V get(K key, Function<K, V> loader) {
+    long invalidationsBeforeLoad;
+
+    synchronized (this) {
+      Object value = entries.get(key);
+      if (value != null) {
+        hits++;
+        return value == NULL ? null : (V) value;
+      }
+
+      misses++;
+      invalidationsBeforeLoad = invalidationsCount;
+    }
+
+    V value = loader.apply(key);
+
+    synchronized (this) {
+      if (invalidationsCount == invalidationsBeforeLoad) {
+        entries.put(key, value == null ? NULL : value);
+      }
+    }
+
+    return value;
+  }
+
+  synchronized void invalidate(K key) {
+    invalidationsCount++;
+    entries.remove(key);
+  }
+
+  synchronized void invalidateIf(Predicate<K> predicate) {
+    invalidationsCount++;
+    entries.keySet().removeIf(predicate);
+  }
+
+  synchronized void invalidateAll() {
+    invalidationsCount++;
+    entries.clear();
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  synchronized CacheStats stats() {
+    return new CacheStats(hits, misses, evictions, invalidationsCount);
+  }
+}
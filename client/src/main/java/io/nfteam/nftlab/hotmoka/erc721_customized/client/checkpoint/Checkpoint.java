@@ -0,0 +1,365 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client.checkpoint;
+
+import io.hotmoka.beans.values.StorageReference;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.EnumerableTokenView;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.TokenURIView;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static io.nfteam.nftlab.hotmoka.erc721_customized.client.checkpoint.CheckpointFormat.*;
+
+/**
+ * The state of a token after a given event, read in place from a file written by (@link CheckpointWriter).
+ * Opening a checkpoint maps the file and reads its header only: queries binary search the mapped
+ * sections, hence a mirror can answer them as soon as it starts, and then replay the events that
+ * follow (@link #lastEvent()).
+ *
+ * Besides the queries of the views, the checkpoint exposes its accounts by dense id and the
+ * positions of its tokens, so that in-memory indexes can read it in place and keep aside only
+ * the changes of the later events. Instances are immutable and can be shared between threads.
+ */
+public final class Checkpoint implements EnumerableTokenView, TokenURIView {
+  private final ByteBuffer buffer;
+  private final int accountsCount;
+  private final int tokensCount;
+  private final int operatorsCount;
+  private final StorageReference lastEvent;
+  private final int[] sections = new int[SECTIONS];
+
+  private Checkpoint(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+
+    if (buffer.capacity() < HEADER_SIZE || buffer.getLong(MAGIC_AT) != MAGIC) {
+      throw new IOException("not a checkpoint");
+    }
+
+    if (buffer.getInt(VERSION_AT) != VERSION) {
+      throw new IOException("unsupported checkpoint version " + buffer.getInt(VERSION_AT));
+    }
+
+    this.accountsCount = buffer.getInt(ACCOUNTS_COUNT_AT);
+    this.tokensCount = buffer.getInt(TOKENS_COUNT_AT);
+    this.operatorsCount = buffer.getInt(OPERATORS_COUNT_AT);
+    this.lastEvent = getReference(buffer, LAST_EVENT_AT);
+
+    for (int s = 0; s < SECTIONS; s++) {
+      long at = buffer.getLong(SECTIONS_AT + 8 * s);
+      if (at < HEADER_SIZE || at > buffer.capacity()) {
+        throw new IOException("corrupted checkpoint");
+      }
+
+      sections[s] = (int) at;
+    }
+  }
+
+  /**
+   * Maps the checkpoint at (@code path).
+   */
+  public static Checkpoint open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("checkpoint too large: " + channel.size() + " bytes");
+      }
+
+      // The mapping outlives the channel
+      return new Checkpoint(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN));
+    }
+  }
+
+  /**
+   * @return the last event whose effects are in the checkpoint, or null if none
+   */
+  public StorageReference lastEvent() {
+    return lastEvent;
+  }
+
+  // ============ Dense ids ============
+
+  public int accounts() {
+    return accountsCount;
+  }
+
+  public StorageReference account(int id) {
+    return getReference(buffer, sections[ACCOUNTS] + checkIndex(id, accountsCount) * ACCOUNT_SIZE);
+  }
+
+  /**
+   * @return the id of (@code account), or a negative number if the checkpoint does not know it
+   */
+  public int idOf(StorageReference account) {
+    if (account == null) {
+      return NONE;
+    }
+
+    byte[] hash = hashOf(account);
+    long progressive = account.progressive.longValue();
+
+    int low = 0, high = accountsCount - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int comparison = compare(buffer, sections[ACCOUNTS] + middle * ACCOUNT_SIZE, hash, progressive);
+      if (comparison < 0) {
+        low = middle + 1;
+      } else if (comparison > 0) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+
+    return NONE;
+  }
+
+  public int tokens() {
+    return tokensCount;
+  }
+
+  /**
+   * @return the token at (@code index) of the enumeration
+   */
+  public long tokenAt(int index) {
+    return buffer.getLong(sections[ALL_TOKENS] + 8 * checkIndex(index, tokensCount));
+  }
+
+  /**
+   * @return the id of the owner of (@code tokenId), or a negative number if the token does not exist
+   */
+  public int ownerIdOf(long tokenId) {
+    int at = recordOf(tokenId);
+
+    return at >= 0 ? buffer.getInt(at + TOKEN_OWNER) : NONE;
+  }
+
+  /**
+   * @return the id of the account approved for (@code tokenId), or a negative number if there is none
+   */
+  public int approvedIdOf(long tokenId) {
+    int at = recordOf(tokenId);
+
+    return at >= 0 ? buffer.getInt(at + TOKEN_APPROVED) : NONE;
+  }
+
+  /**
+   * @return the position of (@code tokenId) in the enumeration, or a negative number if the token does not exist
+   */
+  public int globalIndexOf(long tokenId) {
+    int at = recordOf(tokenId);
+
+    return at >= 0 ? buffer.getInt(at + TOKEN_GLOBAL_INDEX) : NONE;
+  }
+
+  /**
+   * @return the position of (@code tokenId) in the list of its owner, or a negative number if the token does not exist
+   */
+  public int ownedIndexOf(long tokenId) {
+    int at = recordOf(tokenId);
+
+    return at >= 0 ? buffer.getInt(at + TOKEN_OWNED_INDEX) : NONE;
+  }
+
+  public int balanceOf(int id) {
+    checkIndex(id, accountsCount);
+
+    return buffer.getInt(sections[OWNED_OFFSETS] + 4 * (id + 1)) - buffer.getInt(sections[OWNED_OFFSETS] + 4 * id);
+  }
+
+  /**
+   * @return the token at (@code index) of the list of the account with the given id
+   */
+  public long ownedTokenAt(int id, int index) {
+    checkIndex(index, balanceOf(id));
+
+    return buffer.getLong(sections[OWNED] + 8 * (buffer.getInt(sections[OWNED_OFFSETS] + 4 * id) + index));
+  }
+
+  public int operators() {
+    return operatorsCount;
+  }
+
+  /**
+   * @return the id of the owner of the (@code index)th pair of owner and operator
+   */
+  public int operatorOwnerAt(int index) {
+    return (int) (operatorPairAt(checkIndex(index, operatorsCount)) >>> 32);
+  }
+
+  /**
+   * @return the id of the operator of the (@code index)th pair of owner and operator
+   */
+  public int operatorAt(int index) {
+    return (int) operatorPairAt(checkIndex(index, operatorsCount));
+  }
+
+  /**
+   * @return true if and only if the account with id (@code operatorId) is an operator of the one with id (@code ownerId)
+   */
+  public boolean isOperator(int ownerId, int operatorId) {
+    long pair = CheckpointWriter.pair(ownerId, operatorId);
+    int at = firstOperatorPairFrom(pair);
+
+    return at < operatorsCount && operatorPairAt(at) == pair;
+  }
+
+  /**
+   * @return the ids of the operators of the account with id (@code ownerId), in increasing order
+   */
+  public int[] operatorsOf(int ownerId) {
+    int from = firstOperatorPairFrom(CheckpointWriter.pair(ownerId, 0));
+    int to = from;
+    while (to < operatorsCount && (int) (operatorPairAt(to) >>> 32) == ownerId) {
+      to++;
+    }
+
+    int[] operators = new int[to - from];
+    for (int i = from; i < to; i++) {
+      operators[i - from] = (int) operatorPairAt(i);
+    }
+
+    return operators;
+  }
+
+  // ============ Views ============
+
+  @Override
+  public BigInteger balanceOf(StorageReference owner) {
+    int id = idOf(owner);
+
+    return BigInteger.valueOf(id >= 0 ? balanceOf(id) : 0);
+  }
+
+  @Override
+  public StorageReference ownerOf(BigInteger tokenId) {
+    return fitsInLong(tokenId) ? accountOrNull(ownerIdOf(tokenId.longValue())) : null;
+  }
+
+  @Override
+  public StorageReference getApproved(BigInteger tokenId) {
+    return fitsInLong(tokenId) ? accountOrNull(approvedIdOf(tokenId.longValue())) : null;
+  }
+
+  @Override
+  public boolean isApprovedForAll(StorageReference owner, StorageReference operator) {
+    int ownerId = idOf(owner);
+    int operatorId = idOf(operator);
+    if (ownerId < 0 || operatorId < 0) {
+      return false;
+    }
+
+    return isOperator(ownerId, operatorId);
+  }
+
+  @Override
+  public BigInteger totalSupply() {
+    return BigInteger.valueOf(tokensCount);
+  }
+
+  @Override
+  public BigInteger tokenOfOwnerByIndex(StorageReference owner, BigInteger index) {
+    int id = idOf(owner);
+    if (id < 0 || index.signum() < 0 || index.compareTo(BigInteger.valueOf(balanceOf(id))) >= 0) {
+      throw new IndexOutOfBoundsException("owner index out of bounds");
+    }
+
+    return BigInteger.valueOf(ownedTokenAt(id, index.intValue()));
+  }
+
+  @Override
+  public BigInteger tokenByIndex(BigInteger index) {
+    if (index.signum() < 0 || index.compareTo(BigInteger.valueOf(tokensCount)) >= 0) {
+      throw new IndexOutOfBoundsException("global index out of bounds");
+    }
+
+    return BigInteger.valueOf(tokenAt(index.intValue()));
+  }
+
+  /**
+   * @return the URI of (@code tokenId), or null if the token does not exist or the checkpoint has no URI for it
+   */
+  @Override
+  public String tokenURI(BigInteger tokenId) {
+    if (!fitsInLong(tokenId)) {
+      return null;
+    }
+
+    int at = recordOf(tokenId.longValue());
+    if (at < 0 || (buffer.getInt(at + TOKEN_FLAGS) & HAS_URI) == 0) {
+      return null;
+    }
+
+    int r = (at - sections[TOKENS]) / TOKEN_SIZE;
+    int start = (int) buffer.getLong(sections[URI_OFFSETS] + 8 * r);
+    int end = (int) buffer.getLong(sections[URI_OFFSETS] + 8 * (r + 1));
+
+    byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(sections[URI_DATA] + start + i);
+    }
+
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @return the offset of the record of (@code tokenId), or a negative number if the token does not exist
+   */
+  private int recordOf(long tokenId) {
+    int low = 0, high = tokensCount - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int at = sections[TOKENS] + middle * TOKEN_SIZE;
+      long current = buffer.getLong(at + TOKEN_ID);
+      if (current < tokenId) {
+        low = middle + 1;
+      } else if (current > tokenId) {
+        high = middle - 1;
+      } else {
+        return at;
+      }
+    }
+
+    return NONE;
+  }
+
+  /**
+   * @return the position of the first pair of owner and operator that is not less than (@code pair)
+   */
+  private int firstOperatorPairFrom(long pair) {
+    int low = 0, high = operatorsCount;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (operatorPairAt(middle) < pair) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    return low;
+  }
+
+  private long operatorPairAt(int index) {
+    return buffer.getLong(sections[OPERATORS] + 8 * index);
+  }
+
+  private StorageReference accountOrNull(int id) {
+    return id >= 0 ? account(id) : null;
+  }
+
+  private static int checkIndex(int index, int size) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(index);
+    }
+
+    return index;
+  }
+
+  private static boolean fitsInLong(BigInteger tokenId) {
+    return tokenId.bitLength() < 64;
+  }
+}
@@ -0,0 +1,156 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client.checkpoint;
+
+import io.hotmoka.beans.references.LocalTransactionReference;
+import io.hotmoka.beans.values.StorageReference;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * The layout of a checkpoint file. All integers are little endian and every section starts
+ * at a multiple of 8 bytes, so that the file can be mapped and read in place.
+ *
+ * <pre>
+ * header        128 bytes: magic, format version, the counts, the last event and the section offsets
+ * accounts      40 bytes per account: transaction hash and progressive, sorted; an account id is its position
+ * tokens        32 bytes per token: token id, owner, approved, enumeration index, owner list index, flags; sorted by token id
+ * all tokens    8 bytes per token: the token ids in the order of the enumeration
+ * owned offsets 4 bytes per account, plus one: where the list of each account starts in the owned section
+ * owned         8 bytes per token: the lists of the tokens of each account, in order of account id
+ * operators     8 bytes per pair: owner id in the high half and operator id in the low half, sorted
+ * uri offsets   8 bytes per token, plus one: where the URI of each token, in token order, starts in the uri data
+ * uri data      the URIs, in UTF-8
+ * </pre>
+ */
+final class CheckpointFormat {
+  static final long MAGIC = 0x54504b4331323745L; // "E721CKPT"
+  static final int VERSION = 1;
+
+  static final int HASH_LENGTH = 32;
+  static final int ACCOUNT_SIZE = HASH_LENGTH + 8;
+  static final int TOKEN_SIZE = 32;
+  static final int NONE = -1;
+
+  // Flags of a token record
+  static final int HAS_URI = 1;
+
+  // Header fields
+  static final int MAGIC_AT = 0;
+  static final int VERSION_AT = 8;
+  static final int ACCOUNTS_COUNT_AT = 12;
+  static final int TOKENS_COUNT_AT = 16;
+  static final int OPERATORS_COUNT_AT = 20;
+  static final int LAST_EVENT_AT = 24;
+  static final int SECTIONS_AT = 64;
+  static final int HEADER_SIZE = 128;
+
+  // Sections, in file order
+  static final int ACCOUNTS = 0;
+  static final int TOKENS = 1;
+  static final int ALL_TOKENS = 2;
+  static final int OWNED_OFFSETS = 3;
+  static final int OWNED = 4;
+  static final int OPERATORS = 5;
+  static final int URI_OFFSETS = 6;
+  static final int URI_DATA = 7;
+  static final int SECTIONS = 8;
+
+  // Fields of a token record
+  static final int TOKEN_ID = 0;
+  static final int TOKEN_OWNER = 8;
+  static final int TOKEN_APPROVED = 12;
+  static final int TOKEN_GLOBAL_INDEX = 16;
+  static final int TOKEN_OWNED_INDEX = 20;
+  static final int TOKEN_FLAGS = 24;
+
+  private CheckpointFormat() {}
+
+  static long align(long offset) {
+    return (offset + 7) & ~7L;
+  }
+
+  /**
+   * Writes (@code reference) at (@code at), as its transaction hash followed by its progressive.
+   * A null reference is written as zeros with a negative progressive.
+   */
+  static void putReference(ByteBuffer buffer, int at, StorageReference reference) {
+    if (reference == null) {
+      for (int i = 0; i < HASH_LENGTH; i++) {
+        buffer.put(at + i, (byte) 0);
+      }
+
+      buffer.putLong(at + HASH_LENGTH, NONE);
+      return;
+    }
+
+    byte[] hash = hashOf(reference);
+    for (int i = 0; i < HASH_LENGTH; i++) {
+      buffer.put(at + i, hash[i]);
+    }
+
+    buffer.putLong(at + HASH_LENGTH, reference.progressive.longValueExact());
+  }
+
+  /**
+   * Reads a reference written by (@link #putReference(ByteBuffer, int, StorageReference)).
+   */
+  static StorageReference getReference(ByteBuffer buffer, int at) {
+    long progressive = buffer.getLong(at + HASH_LENGTH);
+    if (progressive < 0) {
+      return null;
+    }
+
+    char[] hex = new char[HASH_LENGTH * 2];
+    for (int i = 0; i < HASH_LENGTH; i++) {
+      int b = buffer.get(at + i) & 0xff;
+      hex[2 * i] = Character.forDigit(b >>> 4, 16);
+      hex[2 * i + 1] = Character.forDigit(b & 0xf, 16);
+    }
+
+    return new StorageReference(new LocalTransactionReference(new String(hex)), BigInteger.valueOf(progressive));
+  }
+
+  /**
+   * Compares (@code reference) with the one written at (@code at), in the order of the accounts section.
+   */
+  static int compare(ByteBuffer buffer, int at, byte[] hash, long progressive) {
+    for (int i = 0; i < HASH_LENGTH; i++) {
+      int diff = (buffer.get(at + i) & 0xff) - (hash[i] & 0xff);
+      if (diff != 0) {
+        return diff;
+      }
+    }
+
+    return Long.compare(buffer.getLong(at + HASH_LENGTH), progressive);
+  }
+
+  /**
+   * Compares two references in the order of the accounts section.
+   */
+  static int compare(StorageReference left, StorageReference right) {
+    byte[] leftHash = hashOf(left);
+    byte[] rightHash = hashOf(right);
+    for (int i = 0; i < HASH_LENGTH; i++) {
+      int diff = (leftHash[i] & 0xff) - (rightHash[i] & 0xff);
+      if (diff != 0) {
+        return diff;
+      }
+    }
+
+    return left.progressive.compareTo(right.progressive);
+  }
+
+  static byte[] hashOf(StorageReference reference) {
+    String hex = reference.transaction.getHash();
+    if (hex.length() != HASH_LENGTH * 2) {
+      throw new IllegalArgumentException("unexpected transaction hash " + hex);
+    }
+
+    byte[] hash = new byte[HASH_LENGTH];
+    for (int i = 0; i < HASH_LENGTH; i++) {
+      hash[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+    }
+
+    return hash;
+  }
+}
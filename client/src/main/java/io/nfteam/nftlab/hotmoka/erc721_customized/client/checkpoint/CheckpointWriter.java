@@ -0,0 +1,243 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client.checkpoint;
+
+import io.hotmoka.beans.values.StorageReference;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.nfteam.nftlab.hotmoka.erc721_customized.client.checkpoint.CheckpointFormat.*;
+
+/**
+ * Collects the state of a token and writes it as a (@link Checkpoint). Tokens are added
+ * in the order of the enumeration of the token, and the list of each owner in its own order,
+ * so that the indexes of the checkpoint agree with those of the contract.
+ */
+public class CheckpointWriter {
+  private final StorageReference lastEvent;
+
+  // Accounts by order of appearance; they are sorted when written
+  private final Map<StorageReference, Integer> ids = new HashMap<>();
+  private final List<StorageReference> accounts = new ArrayList<>();
+
+  private final List<Long> allTokens = new ArrayList<>();
+  private final Map<Long, Integer> owners = new HashMap<>();
+  private final Map<Long, Integer> approvals = new HashMap<>();
+  private final Map<Integer, long[]> ownedTokens = new HashMap<>();
+  private final List<Long> operators = new ArrayList<>();
+  private final Map<Long, String> uris = new HashMap<>();
+
+  /**
+   * @param lastEvent the last event whose effects are in the checkpoint, or null if none
+   */
+  public CheckpointWriter(StorageReference lastEvent) {
+    this.lastEvent = lastEvent;
+  }
+
+  /**
+   * Adds the next token of the enumeration.
+   *
+   * @param approved the account approved for the token, or null if there is none
+   */
+  public void token(long tokenId, StorageReference owner, StorageReference approved) {
+    if (owners.putIfAbsent(tokenId, idOf(owner)) != null) {
+      throw new IllegalArgumentException("token " + tokenId + " added twice");
+    }
+
+    allTokens.add(tokenId);
+    if (approved != null) {
+      approvals.put(tokenId, idOf(approved));
+    }
+  }
+
+  /**
+   * Sets the list of the tokens of (@code owner), in order.
+   */
+  public void ownedTokens(StorageReference owner, long[] tokenIds) {
+    ownedTokens.put(idOf(owner), tokenIds.clone());
+  }
+
+  public void operator(StorageReference owner, StorageReference operator) {
+    operators.add(pair(idOf(owner), idOf(operator)));
+  }
+
+  public void uri(long tokenId, String uri) {
+    uris.put(tokenId, uri);
+  }
+
+  /**
+   * Writes the checkpoint to (@code path), replacing it atomically.
+   *
+   * @throws IllegalStateException if the lists of the owners do not match the tokens
+   */
+  public void write(Path path) throws IOException {
+    int accountsCount = accounts.size();
+    int tokensCount = allTokens.size();
+
+    // Accounts are written sorted, so that readers find them by binary search
+    Integer[] sorted = new Integer[accountsCount];
+    for (int i = 0; i < accountsCount; i++) {
+      sorted[i] = i;
+    }
+    Arrays.sort(sorted, (left, right) -> compare(accounts.get(left), accounts.get(right)));
+
+    int[] remap = new int[accountsCount];
+    for (int i = 0; i < accountsCount; i++) {
+      remap[sorted[i]] = i;
+    }
+
+    long[] byId = allTokens.stream().mapToLong(Long::longValue).sorted().toArray();
+
+    Map<Long, Integer> globalIndexes = new HashMap<>();
+    for (int i = 0; i < tokensCount; i++) {
+      globalIndexes.put(allTokens.get(i), i);
+    }
+
+    Map<Long, Integer> ownedIndexes = new HashMap<>();
+    int ownedCount = 0;
+    for (Map.Entry<Integer, long[]> entry : ownedTokens.entrySet()) {
+      long[] list = entry.getValue();
+      for (int i = 0; i < list.length; i++) {
+        Integer owner = owners.get(list[i]);
+        if (owner == null || !owner.equals(entry.getKey()) || ownedIndexes.put(list[i], i) != null) {
+          throw new IllegalStateException("token " + list[i] + " is not owned by " + accounts.get(entry.getKey()));
+        }
+      }
+
+      ownedCount += list.length;
+    }
+
+    if (ownedCount != tokensCount) {
+      throw new IllegalStateException("the lists of the owners miss " + (tokensCount - ownedCount) + " tokens");
+    }
+
+    byte[][] encodedURIs = new byte[tokensCount][];
+    long uriBytes = 0;
+    for (int r = 0; r < tokensCount; r++) {
+      String uri = uris.get(byId[r]);
+      if (uri != null) {
+        encodedURIs[r] = uri.getBytes(StandardCharsets.UTF_8);
+        uriBytes += encodedURIs[r].length;
+      }
+    }
+
+    long[] sections = new long[SECTIONS];
+    long[] sizes = {
+      (long) accountsCount * ACCOUNT_SIZE, (long) tokensCount * TOKEN_SIZE, 8L * tokensCount, 4L * (accountsCount + 1),
+      8L * tokensCount, 8L * operators.size(), 8L * (tokensCount + 1), uriBytes
+    };
+
+    long end = HEADER_SIZE;
+    for (int s = 0; s < SECTIONS; s++) {
+      sections[s] = align(end);
+      end = sections[s] + sizes[s];
+    }
+
+    if (end > Integer.MAX_VALUE) {
+      throw new IOException("the checkpoint would exceed " + Integer.MAX_VALUE + " bytes");
+    }
+
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, end);
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+      buffer.putLong(MAGIC_AT, MAGIC);
+      buffer.putInt(VERSION_AT, VERSION);
+      buffer.putInt(ACCOUNTS_COUNT_AT, accountsCount);
+      buffer.putInt(TOKENS_COUNT_AT, tokensCount);
+      buffer.putInt(OPERATORS_COUNT_AT, operators.size());
+      putReference(buffer, LAST_EVENT_AT, lastEvent);
+      for (int s = 0; s < SECTIONS; s++) {
+        buffer.putLong(SECTIONS_AT + 8 * s, sections[s]);
+      }
+
+      for (int i = 0; i < accountsCount; i++) {
+        putReference(buffer, (int) sections[ACCOUNTS] + i * ACCOUNT_SIZE, accounts.get(sorted[i]));
+      }
+
+      int uriAt = 0;
+      for (int r = 0; r < tokensCount; r++) {
+        long tokenId = byId[r];
+        int at = (int) sections[TOKENS] + r * TOKEN_SIZE;
+        Integer approved = approvals.get(tokenId);
+
+        buffer.putLong(at + TOKEN_ID, tokenId);
+        buffer.putInt(at + TOKEN_OWNER, remap[owners.get(tokenId)]);
+        buffer.putInt(at + TOKEN_APPROVED, approved != null ? remap[approved] : NONE);
+        buffer.putInt(at + TOKEN_GLOBAL_INDEX, globalIndexes.get(tokenId));
+        buffer.putInt(at + TOKEN_OWNED_INDEX, ownedIndexes.get(tokenId));
+        buffer.putInt(at + TOKEN_FLAGS, encodedURIs[r] != null ? HAS_URI : 0);
+
+        buffer.putLong((int) sections[URI_OFFSETS] + 8 * r, uriAt);
+        if (encodedURIs[r] != null) {
+          buffer.position((int) sections[URI_DATA] + uriAt);
+          buffer.put(encodedURIs[r]);
+          uriAt += encodedURIs[r].length;
+        }
+      }
+
+      buffer.putLong((int) sections[URI_OFFSETS] + 8 * tokensCount, uriAt);
+
+      for (int i = 0; i < tokensCount; i++) {
+        buffer.putLong((int) sections[ALL_TOKENS] + 8 * i, allTokens.get(i));
+      }
+
+      int ownedAt = 0;
+      for (int i = 0; i < accountsCount; i++) {
+        buffer.putInt((int) sections[OWNED_OFFSETS] + 4 * i, ownedAt);
+
+        long[] list = ownedTokens.get(sorted[i]);
+        if (list != null) {
+          for (long tokenId : list) {
+            buffer.putLong((int) sections[OWNED] + 8 * ownedAt++, tokenId);
+          }
+        }
+      }
+
+      buffer.putInt((int) sections[OWNED_OFFSETS] + 4 * accountsCount, ownedAt);
+
+      long[] pairs = new long[operators.size()];
+      for (int i = 0; i < pairs.length; i++) {
+        long pair = operators.get(i);
+        pairs[i] = pair(remap[(int) (pair >>> 32)], remap[(int) pair]);
+      }
+
+      Arrays.sort(pairs);
+      for (int i = 0; i < pairs.length; i++) {
+        buffer.putLong((int) sections[OPERATORS] + 8 * i, pairs[i]);
+      }
+
+      buffer.force();
+    }
+
+    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private int idOf(StorageReference account) {
+    if (account == null) {
+      throw new IllegalArgumentException("null account");
+    }
+
+    return ids.computeIfAbsent(account, __ -> {
+      accounts.add(account);
+      return accounts.size() - 1;
+    });
+  }
+
+  static long pair(int owner, int operator) {
+    return ((long) owner << 32) | (operator & 0xffffffffL);
+  }
+}
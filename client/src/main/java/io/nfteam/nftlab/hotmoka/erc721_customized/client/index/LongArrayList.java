@@ -0,0 +1,60 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client.index;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive longs, that avoids boxing the token ids.
+ */
+final class LongArrayList {
+  private long[] elements;
+  private int size;
+
+  LongArrayList() {
+    this.elements = new long[4];
+  }
+
+  int size() {
+    return size;
+  }
+
+  long get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(index);
+    }
+
+    return elements[index];
+  }
+
+  void set(int index, long element) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(index);
+    }
+
+    elements[index] = element;
+  }
+
+  void add(long element) {
+    if (size == elements.length) {
+      elements = Arrays.copyOf(elements, size * 2);
+    }
+
+    elements[size++] = element;
+  }
+
+  long[] toArray() {
+    return Arrays.copyOf(elements, size);
+  }
+
+  /**
+   * Removes the last element of the list.
+   *
+   * @return the removed element
+   */
+  long removeLast() {
+    if (size == 0) {
+      throw new IndexOutOfBoundsException(0);
+    }
+
+    return elements[--size];
+  }
+}
@@ -0,0 +1,121 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client.index;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from longs to non-negative ints, with open addressing and linear probing.
+ * Keys and values are kept in primitive arrays, hence lookups neither box nor chase pointers.
+ */
+final class LongIntHashMap {
+  static final int MISSING = -1;
+
+  private static final float LOAD_FACTOR = 0.5f;
+
+  private long[] keys;
+
+  // MISSING marks the free slots
+  private int[] values;
+  private int size;
+
+  LongIntHashMap() {
+    allocate(16);
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * @return the value bound to (@code key), or (@link #MISSING) if there is none
+   */
+  int get(long key) {
+    int mask = keys.length - 1;
+    for (int slot = slotOf(key, mask); values[slot] != MISSING; slot = (slot + 1) & mask) {
+      if (keys[slot] == key) {
+        return values[slot];
+      }
+    }
+
+    return MISSING;
+  }
+
+  /**
+   * Binds (@code key) to (@code value), that must be non-negative.
+   */
+  void put(long key, int value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("values must be non-negative");
+    }
+
+    int mask = keys.length - 1;
+    int slot = slotOf(key, mask);
+    for (; values[slot] != MISSING; slot = (slot + 1) & mask) {
+      if (keys[slot] == key) {
+        values[slot] = value;
+        return;
+      }
+    }
+
+    keys[slot] = key;
+    values[slot] = value;
+
+    if (++size > keys.length * LOAD_FACTOR) {
+      rehash(keys.length * 2);
+    }
+  }
+
+  /**
+   * Removes the binding of (@code key), if any.
+   */
+  void remove(long key) {
+    int mask = keys.length - 1;
+    int slot = slotOf(key, mask);
+    while (values[slot] != MISSING && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+
+    if (values[slot] == MISSING) {
+      return;
+    }
+
+    // Shift back the following entries of the cluster, so that no tombstone is needed
+    int free = slot;
+    for (int next = (free + 1) & mask; values[next] != MISSING; next = (next + 1) & mask) {
+      int home = slotOf(keys[next], mask);
+      // The entry can fill the free slot only if its home does not lie cyclically in (free, next]
+      if (((next - home) & mask) >= ((next - free) & mask)) {
+        keys[free] = keys[next];
+        values[free] = values[next];
+        free = next;
+      }
+    }
+
+    values[free] = MISSING;
+    size--;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    allocate(capacity);
+    size = 0;
+
+    for (int slot = 0; slot < oldKeys.length; slot++) {
+      if (oldValues[slot] != MISSING) {
+        put(oldKeys[slot], oldValues[slot]);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new int[capacity];
+    Arrays.fill(values, MISSING);
+  }
+
+  private static int slotOf(long key, int mask) {
+    long hash = key * 0x9E3779B97F4A7C15L;
+
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+}
@@ -0,0 +1,97 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client.index;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntToLongFunction;
+
+/**
+ * A list of primitive longs that starts as a list read in place, such as a list of a checkpoint,
+ * and keeps its changes aside: the rewritten elements of the base list and the elements added after it.
+ * Its memory is proportional to the changes, not to the size of the base list.
+ */
+final class LongOverlayList {
+  // The elements of the base list, null if there is none
+  private final IntToLongFunction base;
+
+  // The length of the prefix of the list that lies in the base list; it shrinks when the list does
+  private int baseSize;
+
+  // Mapping from position in the prefix to the element that replaced the base one. The changes are as
+  // many as the events applied since the base was written, hence boxing them is cheap
+  private final Map<Integer, Long> replaced = new HashMap<>();
+
+  // The elements that follow the prefix
+  private final LongArrayList added = new LongArrayList();
+
+  LongOverlayList() {
+    this(null, 0);
+  }
+
+  /**
+   * @param base the elements of the base list
+   * @param baseSize the size of the base list
+   */
+  LongOverlayList(IntToLongFunction base, int baseSize) {
+    this.base = base;
+    this.baseSize = baseSize;
+  }
+
+  int size() {
+    return baseSize + added.size();
+  }
+
+  long get(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException(index);
+    }
+
+    if (index >= baseSize) {
+      return added.get(index - baseSize);
+    }
+
+    Long element = replaced.get(index);
+
+    return element != null ? element : base.applyAsLong(index);
+  }
+
+  void set(int index, long element) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException(index);
+    }
+
+    if (index >= baseSize) {
+      added.set(index - baseSize, element);
+    } else {
+      replaced.put(index, element);
+    }
+  }
+
+  void add(long element) {
+    added.add(element);
+  }
+
+  /**
+   * Removes the last element of the list.
+   *
+   * @return the removed element
+   */
+  long removeLast() {
+    if (added.size() > 0) {
+      return added.removeLast();
+    }
+
+    long last = get(baseSize - 1);
+    replaced.remove(--baseSize);
+
+    return last;
+  }
+
+  long[] toArray() {
+    long[] elements = new long[size()];
+    for (int index = 0; index < elements.length; index++) {
+      elements[index] = get(index);
+    }
+
+    return elements;
+  }
+}
@@ -0,0 +1,554 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client.index;
+
+import io.hotmoka.beans.values.StorageReference;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.EnumerableTokenView;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.TokenEvent;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.TokenURIView;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.checkpoint.Checkpoint;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.checkpoint.CheckpointWriter;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory copy of the ownership state of a token, materialized from its events.
+ * It answers the queries of (@code IERC721View) and (@code IERC721EnumerableView) locally.
+ *
+ * Accounts are interned to dense int ids and token ids are kept as longs, so that all maps and
+ * lists are primitive arrays. The lists of tokens are updated with the same swap and pop of
+ * (@code ERC721Enumerable), hence indexes agree with the contract when events are applied in order.
+ * The token must generate transfer and approval events, see (@code EventPolicy).
+ *
+ * An index can start from a (@link Checkpoint), that it reads in place: its maps and lists then hold
+ * only the changes of the events applied afterwards and fall back to the checkpoint for the rest.
+ * The URIs are those carried by the (@link TokenEvent.Kind#METADATA_UPDATE) events, see (@link TokenEvent#uri),
+ * hence the index has no URI for the tokens whose URI is computed from the base URI.
+ */
+public class OwnershipIndex implements EnumerableTokenView, TokenURIView {
+  private static final int NONE = LongIntHashMap.MISSING;
+
+  // Marks, in the maps of the changes, the entries of the checkpoint that have been removed since
+  private static final int REMOVED = Integer.MAX_VALUE;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // The checkpoint the index started from, null if it started empty
+  private final Checkpoint base;
+
+  // The number of accounts of the checkpoint, that keep their ids in the index
+  private final int baseAccounts;
+
+  // Interned accounts: the id of an account is the number of accounts of the checkpoint plus its position in the list.
+  // The ids of the accounts of the checkpoint that have been looked up are kept as well
+  private final List<StorageReference> accounts = new ArrayList<>();
+  private final Map<StorageReference, Integer> ids = new HashMap<>();
+
+  // Mapping from token ID to the id of its owner
+  private final LongIntHashMap owners = new LongIntHashMap();
+
+  // Mapping from token ID to the id of its approved account
+  private final LongIntHashMap tokenApprovals = new LongIntHashMap();
+
+  // Mapping from account id to its list of owned token IDs, for the accounts whose list changed
+  private final Map<Integer, LongOverlayList> ownedTokens = new HashMap<>();
+
+  // Mapping from token ID to index of the owner tokens list, for the tokens that moved
+  private final LongIntHashMap ownedTokensIndex = new LongIntHashMap();
+
+  // Array with all token ids, used for enumeration
+  private final LongOverlayList allTokens;
+
+  // Mapping from token id to position in the allTokens array, for the tokens that moved
+  private final LongIntHashMap allTokensIndex = new LongIntHashMap();
+
+  // Mapping from owner id to the ids of its operators, for the owners whose operators changed
+  private final Map<Integer, Set<Integer>> operatorApprovals = new HashMap<>();
+
+  // Mapping from token ID to its URI, null if the token has none, for the tokens whose URI changed
+  private final Map<Long, String> uris = new HashMap<>();
+
+  private StorageReference lastApplied;
+
+  /**
+   * Creates an empty index, to which all the events of the token must be applied.
+   */
+  public OwnershipIndex() {
+    this.base = null;
+    this.baseAccounts = 0;
+    this.allTokens = new LongOverlayList();
+  }
+
+  /**
+   * Creates an index with the state of (@code checkpoint), to which the events that follow
+   * (@link Checkpoint#lastEvent()) must be applied. The checkpoint is not copied, hence this
+   * takes constant time, and it must stay open as long as the index is used.
+   */
+  public OwnershipIndex(Checkpoint checkpoint) {
+    this.base = checkpoint;
+    this.baseAccounts = checkpoint.accounts();
+    this.allTokens = new LongOverlayList(checkpoint::tokenAt, checkpoint.tokens());
+    this.lastApplied = checkpoint.lastEvent();
+  }
+
+  /**
+   * Writes the state of this index, with its URIs, as a checkpoint at (@code path).
+   * The state is read under the lock, hence it is the one after (@link #lastApplied()).
+   */
+  public void checkpoint(Path path) throws IOException {
+    CheckpointWriter writer;
+
+    lock.readLock().lock();
+    try {
+      writer = new CheckpointWriter(lastApplied);
+      for (int index = 0; index < allTokens.size(); index++) {
+        long tokenId = allTokens.get(index);
+        writer.token(tokenId, accountOf(ownerIdOf(tokenId)), accountOf(approvedIdOf(tokenId)));
+
+        String uri = uriOf(tokenId);
+        if (uri != null) {
+          writer.uri(tokenId, uri);
+        }
+      }
+
+      for (int id = 0; id < baseAccounts + accounts.size(); id++) {
+        int balance = balanceOf(id);
+        if (balance > 0) {
+          long[] owned = new long[balance];
+          for (int index = 0; index < balance; index++) {
+            owned[index] = ownedTokenAt(id, index);
+          }
+
+          writer.ownedTokens(accountOf(id), owned);
+        }
+
+        Set<Integer> operators = operatorApprovals.get(id);
+        if (operators != null) {
+          for (int operator : operators) {
+            writer.operator(accountOf(id), accountOf(operator));
+          }
+        } else if (id < baseAccounts) {
+          for (int operator : base.operatorsOf(id)) {
+            writer.operator(accountOf(id), accountOf(operator));
+          }
+        }
+      }
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+
+    writer.write(path);
+  }
+
+  /**
+   * Applies an event of the token to the index. Events must be applied in the order
+   * the node generated them.
+   */
+  public void apply(TokenEvent event) {
+    lock.writeLock().lock();
+    try {
+      switch (event.kind) {
+        case TRANSFER:
+          int from = idOf(event.from);
+          int to = idOf(event.to);
+          event.forEachTokenId(tokenId -> transfer(from, to, toLong(tokenId)));
+          break;
+        case APPROVAL:
+          int approved = idOf(event.to);
+          event.forEachTokenId(tokenId -> {
+            if (approved == NONE) {
+              remove(tokenApprovals, toLong(tokenId));
+            } else {
+              tokenApprovals.put(toLong(tokenId), approved);
+            }
+          });
+          break;
+        case APPROVAL_FOR_ALL:
+          int owner = idOf(event.from);
+          int operator = idOf(event.to);
+          if (event.approved) {
+            operatorsForUpdate(owner).add(operator);
+          } else {
+            Set<Integer> operators = operatorsForUpdate(owner);
+            if (operators.remove(operator) && operators.isEmpty() && owner >= baseAccounts) {
+              operatorApprovals.remove(owner);
+            }
+          }
+          break;
+        case ALL_OPERATORS_REVOKED:
+          int revoking = idOf(event.from);
+          if (revoking < baseAccounts) {
+            operatorApprovals.put(revoking, new HashSet<>());
+          } else {
+            operatorApprovals.remove(revoking);
+          }
+          break;
+        case METADATA_UPDATE:
+          event.forEachTokenId(tokenId -> uris.put(toLong(tokenId), event.uri));
+          break;
+      }
+
+      lastApplied = event.reference;
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @return the last event applied to the index, or null if none was applied
+   */
+  public StorageReference lastApplied() {
+    lock.readLock().lock();
+    try {
+      return lastApplied;
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void transfer(int from, int to, long tokenId) {
+    if (from == NONE) {
+      allTokensIndex.put(tokenId, allTokens.size());
+      allTokens.add(tokenId);
+    } else {
+      removeFromOwner(from, tokenId);
+    }
+
+    if (to == NONE) {
+      removeFromAllTokens(tokenId);
+      remove(owners, tokenId);
+      if (base != null) {
+        uris.put(tokenId, null);
+      } else {
+        uris.remove(tokenId);
+      }
+    } else {
+      addToOwner(to, tokenId);
+      owners.put(tokenId, to);
+    }
+
+    remove(tokenApprovals, tokenId);
+  }
+
+  private void addToOwner(int owner, long tokenId) {
+    LongOverlayList tokens = ownedTokensForUpdate(owner);
+    ownedTokensIndex.put(tokenId, tokens.size());
+    tokens.add(tokenId);
+  }
+
+  private void removeFromOwner(int owner, long tokenId) {
+    LongOverlayList tokens = ownedTokensForUpdate(owner);
+    int tokenIndex = ownedIndexOf(tokenId);
+    long lastTokenId = tokens.removeLast();
+
+    if (lastTokenId != tokenId) {
+      tokens.set(tokenIndex, lastTokenId);
+      ownedTokensIndex.put(lastTokenId, tokenIndex);
+    }
+
+    ownedTokensIndex.remove(tokenId);
+    if (tokens.size() == 0 && owner >= baseAccounts) {
+      ownedTokens.remove(owner);
+    }
+  }
+
+  private void removeFromAllTokens(long tokenId) {
+    int tokenIndex = globalIndexOf(tokenId);
+    long lastTokenId = allTokens.removeLast();
+
+    if (lastTokenId != tokenId) {
+      allTokens.set(tokenIndex, lastTokenId);
+      allTokensIndex.put(lastTokenId, tokenIndex);
+    }
+
+    allTokensIndex.remove(tokenId);
+  }
+
+  /**
+   * Removes the entry of (@code tokenId) from a map of the changes, marking it as removed
+   * if the checkpoint might hold one.
+   */
+  private void remove(LongIntHashMap changes, long tokenId) {
+    if (base != null) {
+      changes.put(tokenId, REMOVED);
+    } else {
+      changes.remove(tokenId);
+    }
+  }
+
+  @Override
+  public BigInteger balanceOf(StorageReference owner) {
+    lock.readLock().lock();
+    try {
+      int id = knownIdOf(owner);
+
+      return BigInteger.valueOf(id != NONE ? balanceOf(id) : 0);
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public StorageReference ownerOf(BigInteger tokenId) {
+    if (!fitsInLong(tokenId)) {
+      return null;
+    }
+
+    lock.readLock().lock();
+    try {
+      return accountOf(ownerIdOf(tokenId.longValue()));
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public StorageReference getApproved(BigInteger tokenId) {
+    if (!fitsInLong(tokenId)) {
+      return null;
+    }
+
+    lock.readLock().lock();
+    try {
+      return accountOf(approvedIdOf(tokenId.longValue()));
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean isApprovedForAll(StorageReference owner, StorageReference operator) {
+    lock.readLock().lock();
+    try {
+      int ownerId = knownIdOf(owner);
+      int operatorId = knownIdOf(operator);
+      if (ownerId == NONE || operatorId == NONE) {
+        return false;
+      }
+
+      Set<Integer> operators = operatorApprovals.get(ownerId);
+      if (operators != null) {
+        return operators.contains(operatorId);
+      }
+
+      return ownerId < baseAccounts && operatorId < baseAccounts && base.isOperator(ownerId, operatorId);
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public BigInteger totalSupply() {
+    lock.readLock().lock();
+    try {
+      return BigInteger.valueOf(allTokens.size());
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public BigInteger tokenOfOwnerByIndex(StorageReference owner, BigInteger index) {
+    lock.readLock().lock();
+    try {
+      int id = knownIdOf(owner);
+      if (id == NONE || index.signum() < 0 || index.compareTo(BigInteger.valueOf(balanceOf(id))) >= 0) {
+        throw new IndexOutOfBoundsException("owner index out of bounds");
+      }
+
+      return BigInteger.valueOf(ownedTokenAt(id, index.intValue()));
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public BigInteger tokenByIndex(BigInteger index) {
+    lock.readLock().lock();
+    try {
+      if (index.signum() < 0 || index.compareTo(BigInteger.valueOf(allTokens.size())) >= 0) {
+        throw new IndexOutOfBoundsException("global index out of bounds");
+      }
+
+      return BigInteger.valueOf(allTokens.get(index.intValue()));
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return the URI of (@code tokenId) carried by its last (@link TokenEvent.Kind#METADATA_UPDATE) event,
+   *         or null if the token does not exist or has no such event
+   */
+  @Override
+  public String tokenURI(BigInteger tokenId) {
+    if (!fitsInLong(tokenId)) {
+      return null;
+    }
+
+    lock.readLock().lock();
+    try {
+      return uriOf(tokenId.longValue());
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private int ownerIdOf(long tokenId) {
+    int owner = owners.get(tokenId);
+    if (owner == NONE) {
+      return base != null ? base.ownerIdOf(tokenId) : NONE;
+    }
+
+    return owner != REMOVED ? owner : NONE;
+  }
+
+  private int approvedIdOf(long tokenId) {
+    int approved = tokenApprovals.get(tokenId);
+    if (approved == NONE) {
+      return base != null ? base.approvedIdOf(tokenId) : NONE;
+    }
+
+    return approved != REMOVED ? approved : NONE;
+  }
+
+  /**
+   * @return the position of an existing token in the list of its owner. A token that has not moved
+   *         since the checkpoint is still where the checkpoint puts it
+   */
+  private int ownedIndexOf(long tokenId) {
+    int index = ownedTokensIndex.get(tokenId);
+
+    return index != NONE || base == null ? index : base.ownedIndexOf(tokenId);
+  }
+
+  /**
+   * @return the position of an existing token in the enumeration. A token that has not moved
+   *         since the checkpoint is still where the checkpoint puts it
+   */
+  private int globalIndexOf(long tokenId) {
+    int index = allTokensIndex.get(tokenId);
+
+    return index != NONE || base == null ? index : base.globalIndexOf(tokenId);
+  }
+
+  private int balanceOf(int owner) {
+    LongOverlayList tokens = ownedTokens.get(owner);
+    if (tokens != null) {
+      return tokens.size();
+    }
+
+    return owner < baseAccounts ? base.balanceOf(owner) : 0;
+  }
+
+  private long ownedTokenAt(int owner, int index) {
+    LongOverlayList tokens = ownedTokens.get(owner);
+
+    return tokens != null ? tokens.get(index) : base.ownedTokenAt(owner, index);
+  }
+
+  /**
+   * Yields the list of the tokens of (@code owner), that starts as the list in the checkpoint.
+   */
+  private LongOverlayList ownedTokensForUpdate(int owner) {
+    return ownedTokens.computeIfAbsent(owner, __ -> owner < baseAccounts
+      ? new LongOverlayList(index -> base.ownedTokenAt(owner, index), base.balanceOf(owner))
+      : new LongOverlayList());
+  }
+
+  /**
+   * Yields the operators of (@code owner), that start as those in the checkpoint.
+   */
+  private Set<Integer> operatorsForUpdate(int owner) {
+    return operatorApprovals.computeIfAbsent(owner, __ -> {
+      Set<Integer> operators = new HashSet<>();
+      if (owner < baseAccounts) {
+        for (int operator : base.operatorsOf(owner)) {
+          operators.add(operator);
+        }
+      }
+
+      return operators;
+    });
+  }
+
+  private String uriOf(long tokenId) {
+    if (uris.containsKey(tokenId)) {
+      return uris.get(tokenId);
+    }
+
+    return base != null ? base.tokenURI(BigInteger.valueOf(tokenId)) : null;
+  }
+
+  private StorageReference accountOf(int id) {
+    if (id == NONE) {
+      return null;
+    }
+
+    return id < baseAccounts ? base.account(id) : accounts.get(id - baseAccounts);
+  }
+
+  /**
+   * @return the id of the given account, or (@code NONE) if the index does not know it
+   */
+  private int knownIdOf(StorageReference account) {
+    Integer id = ids.get(account);
+    if (id != null) {
+      return id;
+    }
+
+    return base != null ? base.idOf(account) : NONE;
+  }
+
+  /**
+   * Yields the id of the given account, interning it if it is seen for the first time.
+   *
+   * @return the id, or (@code NONE) for null
+   */
+  private int idOf(StorageReference account) {
+    if (account == null) {
+      return NONE;
+    }
+
+    int id = knownIdOf(account);
+    if (id == NONE) {
+      id = baseAccounts + accounts.size();
+      accounts.add(account);
+    }
+
+    ids.putIfAbsent(account, id);
+
+    return id;
+  }
+
+  private static long toLong(BigInteger tokenId) {
+    if (!fitsInLong(tokenId)) {
+      throw new IllegalArgumentException("token id " + tokenId + " does not fit in a long");
+    }
+
+    return tokenId.longValue();
+  }
+
+  private static boolean fitsInLong(BigInteger tokenId) {
+    return tokenId.bitLength() < 64;
+  }
+}
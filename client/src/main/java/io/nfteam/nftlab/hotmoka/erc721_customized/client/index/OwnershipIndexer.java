@@ -0,0 +1,140 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client.index;
+
+import io.hotmoka.beans.references.TransactionReference;
+import io.hotmoka.beans.values.StorageReference;
+import io.hotmoka.nodes.Node;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.EventJournal;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.TokenEvent;
+import io.nfteam.nftlab.hotmoka.erc721_customized.client.TokenEvents;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Keeps an (@link OwnershipIndex) up to date with a token. At start, it rebuilds the index
+ * by replaying the transactions of the journal from the store of the node; then it applies
+ * the events of the token as they arrive, journaling their transactions for the next start.
+ *
+ * Transactions executed while no indexer was running are not seen by the subscription:
+ * whoever sent them can append them to the journal, so that the next start catches up.
+ *
+ * An index loaded from a checkpoint, see (@link OwnershipIndex#OwnershipIndex(io.nfteam.nftlab.hotmoka.erc721_customized.client.checkpoint.Checkpoint)),
+ * is caught up by replaying only the events that follow its last applied event.
+ */
+public class OwnershipIndexer implements AutoCloseable {
+  private final TokenEvents events;
+  private final EventJournal journal;
+  private final OwnershipIndex index;
+  private final Consumer<Exception> onError;
+  private Node.Subscription subscription;
+
+  // Events received while the journal is being replayed, null once the replay is over
+  private List<TokenEvent> pending = new ArrayList<>();
+
+  /**
+   * @param events the source of the events of the token
+   * @param journal the journal of the transactions of the token
+   * @param index the index to keep up to date
+   * @param onError receives the events that could not be decoded or journaled
+   */
+  public OwnershipIndexer(TokenEvents events, EventJournal journal, OwnershipIndex index, Consumer<Exception> onError) {
+    this.events = events;
+    this.journal = journal;
+    this.index = index;
+    this.onError = onError;
+  }
+
+  /**
+   * Replays the journal and starts following the token.
+   */
+  public void start() throws Exception {
+    // Subscribe before replaying, so that no event falls between the two
+    subscription = events.subscribe(this::onEvent, onError);
+
+    List<TransactionReference> transactions = journal.transactions();
+    StorageReference checkpoint = index.lastApplied();
+
+    int first = 0;
+    if (checkpoint != null) {
+      first = transactions.indexOf(checkpoint.transaction);
+      if (first < 0) {
+        throw new IllegalStateException("the journal does not contain the last event of the index");
+      }
+    }
+
+    // The transactions before the last applied event are already in the index
+    Set<TransactionReference> replayed = new HashSet<>(transactions.subList(0, first));
+    for (int i = first; i < transactions.size(); i++) {
+      TransactionReference transaction = transactions.get(i);
+      if (replayed.add(transaction)) {
+        events.replay(transaction, checkpoint != null && i == first ? new After(checkpoint) : index::apply);
+      }
+    }
+
+    // Events arriving meanwhile wait for the buffered ones, so that the order is kept
+    synchronized (this) {
+      for (TokenEvent event : pending) {
+        if (!replayed.contains(event.reference.transaction)) {
+          follow(event);
+        }
+      }
+
+      pending = null;
+    }
+  }
+
+  public OwnershipIndex index() {
+    return index;
+  }
+
+  /**
+   * Applies the events of a transaction that follow a given event, since an index
+   * can be checkpointed between two events of the same transaction.
+   */
+  private class After implements Consumer<TokenEvent> {
+    private final StorageReference last;
+    private boolean reached;
+
+    private After(StorageReference last) {
+      this.last = last;
+    }
+
+    @Override
+    public void accept(TokenEvent event) {
+      if (reached) {
+        index.apply(event);
+      } else {
+        reached = event.reference.equals(last);
+      }
+    }
+  }
+
+  private synchronized void onEvent(TokenEvent event) {
+    if (pending != null) {
+      pending.add(event);
+    } else {
+      follow(event);
+    }
+  }
+
+  private void follow(TokenEvent event) {
+    index.apply(event);
+
+    try {
+      journal.append(event.reference.transaction);
+    }
+    catch (Exception e) {
+      onError.accept(e);
+    }
+  }
+
+  @Override
+  public void close() throws Exception {
+    if (subscription != null) {
+      subscription.close();
+    }
+  }
+}
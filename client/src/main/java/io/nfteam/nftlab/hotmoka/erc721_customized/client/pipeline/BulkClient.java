@@ -0,0 +1,357 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client.pipeline;
+
+import io.hotmoka.beans.CodeExecutionException;
+import io.hotmoka.beans.TransactionException;
+import io.hotmoka.beans.TransactionRejectedException;
+import io.hotmoka.beans.references.TransactionReference;
+import io.hotmoka.beans.requests.InstanceMethodCallTransactionRequest;
+import io.hotmoka.beans.requests.SignedTransactionRequest.Signer;
+import io.hotmoka.beans.signatures.CodeSignature;
+import io.hotmoka.beans.values.BigIntegerValue;
+import io.hotmoka.beans.values.StorageReference;
+import io.hotmoka.beans.values.StorageValue;
+import io.hotmoka.nodes.Node;
+import io.hotmoka.nodes.Node.CodeSupplier;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends many operations to a node without waiting for each one to be committed before sending the next.
+ *
+ * Each paying account has a lane: the requests of a lane are signed and posted one after the other,
+ * with consecutive nonces kept locally, while different lanes proceed in parallel and a pool of
+ * waiters collects the commits. At most (@link PipelineConfig#maxInFlight) operations are in flight:
+ * beyond that, (@link #submit(Operation)) blocks, so that a producer cannot outrun the node.
+ *
+ * A rejected transaction, for instance because of a stale nonce, was not paid, and the requests
+ * posted after it in its lane are rejected as well, since their nonces follow its own. The lane then
+ * stops posting: once the pause after the rejection is over and all of its requests in flight are settled,
+ * the nonce is read again from the node and the rejected operations are sent again, in the order
+ * they were submitted, followed by those submitted meanwhile. Hence the operations of a lane run in order.
+ * The only exception is a lane whose nonce is stale because its account sent transactions outside this client:
+ * the requests in flight that happen to carry a valid nonce are committed before the rejected ones
+ * that preceded them.
+ *
+ * A transaction whose method threw was paid and would throw again, hence it is reported as failed and not retried.
+ */
+public class BulkClient implements AutoCloseable {
+  private static final BigInteger NONCE_GAS = BigInteger.valueOf(100_000);
+
+  private final Node node;
+  private final TransactionReference classpath;
+  private final PipelineConfig config;
+  private final Semaphore slots;
+  private final Map<StorageReference, Lane> lanes = new ConcurrentHashMap<>();
+  private final ExecutorService waiters;
+  private final ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor();
+  private final PipelineReport report = new PipelineReport();
+
+  /**
+   * The paying account of a lane, with the nonce of its next request and the operations waiting to be sent.
+   */
+  private static class Lane {
+    private final StorageReference account;
+    private final Signer signer;
+    private BigInteger nonce;
+
+    // The number of operations submitted to the lane so far, that numbers the next one
+    private long submitted;
+
+    // The number of posted requests whose outcome is not known yet
+    private int inFlight;
+
+    // True from a rejection until the nonce has been read again: meanwhile, nothing is posted
+    private boolean recovering;
+
+    // True until the pause after the last rejection is over
+    private boolean pausing;
+
+    // The operations to send, in the order they were submitted
+    private final PriorityQueue<Request> waiting = new PriorityQueue<>(Comparator.comparingLong(request -> request.sequence));
+
+    private Lane(StorageReference account, Signer signer, BigInteger nonce) {
+      this.account = account;
+      this.signer = signer;
+      this.nonce = nonce;
+    }
+  }
+
+  /**
+   * An operation submitted to a lane, with its attempts so far.
+   */
+  private static class Request {
+    private final Operation operation;
+    private final long sequence;
+    private final long start;
+    private final CompletableFuture<Outcome> outcome;
+    private int attempt = 1;
+
+    private Request(Operation operation, long sequence, long start, CompletableFuture<Outcome> outcome) {
+      this.operation = operation;
+      this.sequence = sequence;
+      this.start = start;
+      this.outcome = outcome;
+    }
+  }
+
+  /**
+   * @param node the node that runs the operations
+   * @param classpath the jar that contains the classes of the called methods
+   * @param config the parameters of the pipeline
+   */
+  public BulkClient(Node node, TransactionReference classpath, PipelineConfig config) {
+    this.node = node;
+    this.classpath = classpath;
+    this.config = config;
+    this.slots = new Semaphore(config.maxInFlight);
+    this.waiters = Executors.newFixedThreadPool(config.waiters);
+  }
+
+  /**
+   * Adds an account that can pay for operations. Its nonce is read from the node, hence the account
+   * should not send other transactions while this client uses it.
+   */
+  public void addAccount(StorageReference account, Signer signer)
+    throws TransactionRejectedException, TransactionException, CodeExecutionException {
+
+    if (lanes.putIfAbsent(account, new Lane(account, signer, nonceOf(account))) != null) {
+      throw new IllegalArgumentException("account " + account + " was already added");
+    }
+  }
+
+  /**
+   * Sends an operation, blocking while too many operations are in flight.
+   *
+   * @return the outcome of the operation, completed once it is committed, failed or rejected for good
+   */
+  public CompletableFuture<Outcome> submit(Operation operation) throws InterruptedException {
+    Lane lane = lanes.get(operation.payer);
+    if (lane == null) {
+      throw new IllegalArgumentException("unknown payer " + operation.payer);
+    }
+
+    long start = System.nanoTime();
+    slots.acquire();
+    report.record(PipelineReport.Stage.QUEUE, System.nanoTime() - start);
+
+    var outcome = new CompletableFuture<Outcome>();
+    synchronized (lane) {
+      lane.waiting.add(new Request(operation, lane.submitted++, start, outcome));
+      sendWaiting(lane);
+    }
+
+    return outcome;
+  }
+
+  /**
+   * Sends the given operations and waits for all of them.
+   *
+   * @return the outcomes, in the order of the operations
+   */
+  public List<Outcome> submitAll(Iterable<Operation> operations) throws InterruptedException {
+    var pending = new ArrayList<CompletableFuture<Outcome>>();
+    for (Operation operation: operations) {
+      pending.add(submit(operation));
+    }
+
+    var outcomes = new ArrayList<Outcome>(pending.size());
+    for (var outcome: pending) {
+      outcomes.add(outcome.join());
+    }
+
+    return outcomes;
+  }
+
+  /**
+   * Waits until no operation is in flight.
+   */
+  public void drain() throws InterruptedException {
+    slots.acquire(config.maxInFlight);
+    slots.release(config.maxInFlight);
+  }
+
+  public PipelineReport report() {
+    return report;
+  }
+
+  /**
+   * Posts the waiting operations of a lane, in order, unless the lane is recovering from a rejection.
+   * The caller holds the lock of the lane.
+   */
+  private void sendWaiting(Lane lane) {
+    while (!lane.recovering && !lane.waiting.isEmpty()) {
+      send(lane, lane.waiting.poll());
+    }
+  }
+
+  /**
+   * Signs and posts a request. The caller holds the lock of the lane.
+   */
+  private void send(Lane lane, Request request) {
+    Operation operation = request.operation;
+    CodeSupplier<StorageValue> supplier;
+
+    try {
+      long signing = System.nanoTime();
+      var signed = new InstanceMethodCallTransactionRequest(
+        lane.signer, lane.account, lane.nonce, config.chainId, config.gasLimit, config.gasPrice, classpath,
+        operation.method, operation.receiver, operation.actuals()
+      );
+
+      long posting = System.nanoTime();
+      report.record(PipelineReport.Stage.SIGN, posting - signing);
+      supplier = node.postInstanceMethodCallTransaction(signed);
+      report.record(PipelineReport.Stage.SUBMIT, System.nanoTime() - posting);
+    }
+    catch (TransactionRejectedException e) {
+      rejected(lane, request, null, e);
+      return;
+    }
+    catch (Exception e) {
+      // The request could not be signed: sending it again would not help
+      finishLater(new Outcome(operation, Outcome.Status.FAILED, null, request.attempt, e), request);
+      return;
+    }
+
+    lane.nonce = lane.nonce.add(BigInteger.ONE);
+    lane.inFlight++;
+
+    CodeSupplier<StorageValue> posted = supplier;
+    long accepted = System.nanoTime();
+    waiters.execute(() -> {
+      TransactionReference transaction = posted.getReferenceOfRequest();
+      Outcome result;
+
+      try {
+        posted.get();
+        report.record(PipelineReport.Stage.COMMIT, System.nanoTime() - accepted);
+        result = new Outcome(operation, Outcome.Status.COMMITTED, transaction, request.attempt, null);
+      }
+      catch (TransactionRejectedException e) {
+        synchronized (lane) {
+          lane.inFlight--;
+          rejected(lane, request, transaction, e);
+          recover(lane);
+        }
+
+        return;
+      }
+      catch (TransactionException | CodeExecutionException e) {
+        report.record(PipelineReport.Stage.COMMIT, System.nanoTime() - accepted);
+        result = new Outcome(operation, Outcome.Status.FAILED, transaction, request.attempt, e);
+      }
+      catch (RuntimeException e) {
+        // The transaction might have been committed: sending it again could run it twice
+        result = new Outcome(operation, Outcome.Status.FAILED, transaction, request.attempt, e);
+      }
+
+      synchronized (lane) {
+        lane.inFlight--;
+        recover(lane);
+      }
+
+      finish(result, request);
+    });
+  }
+
+  /**
+   * Puts a rejected request back among the waiting ones, if it has attempts left, and stops the lane
+   * until it recovers. The caller holds the lock of the lane.
+   */
+  private void rejected(Lane lane, Request request, TransactionReference transaction, TransactionRejectedException cause) {
+    long pause = config.retryBackoffMillis << Math.min(request.attempt - 1, 20);
+
+    if (request.attempt < config.maxAttempts) {
+      report.retried();
+      request.attempt++;
+      lane.waiting.add(request);
+    }
+    else {
+      finishLater(new Outcome(request.operation, Outcome.Status.REJECTED, transaction, request.attempt, cause), request);
+    }
+
+    // The later rejections of the requests in flight are a consequence of this one
+    if (!lane.recovering) {
+      lane.recovering = true;
+      pause(lane, pause);
+    }
+  }
+
+  private void pause(Lane lane, long millis) {
+    lane.pausing = true;
+    retries.schedule(() -> {
+      synchronized (lane) {
+        lane.pausing = false;
+        recover(lane);
+      }
+    }, millis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Reads again the nonce of a recovering lane and sends its waiting operations, once the pause is over
+   * and no request of the lane is in flight, so that no later commit can consume the nonce that was read.
+   * The caller holds the lock of the lane.
+   */
+  private void recover(Lane lane) {
+    if (!lane.recovering || lane.pausing || lane.inFlight > 0) {
+      return;
+    }
+
+    try {
+      lane.nonce = nonceOf(lane.account);
+      report.resynced();
+    }
+    catch (Exception e) {
+      // Try again after another pause
+      pause(lane, config.retryBackoffMillis);
+      return;
+    }
+
+    lane.recovering = false;
+    sendWaiting(lane);
+  }
+
+  /**
+   * Completes an operation from a waiter, so that the callbacks of its outcome do not run under the lock of its lane.
+   */
+  private void finishLater(Outcome result, Request request) {
+    waiters.execute(() -> finish(result, request));
+  }
+
+  private void finish(Outcome result, Request request) {
+    report.record(PipelineReport.Stage.TOTAL, System.nanoTime() - request.start);
+    report.record(result);
+    slots.release();
+    request.outcome.complete(result);
+  }
+
+  private BigInteger nonceOf(StorageReference account)
+    throws TransactionRejectedException, TransactionException, CodeExecutionException {
+
+    return ((BigIntegerValue) node.runInstanceMethodCallTransaction(new InstanceMethodCallTransactionRequest(
+      account, NONCE_GAS, classpath, CodeSignature.NONCE, account
+    ))).value;
+  }
+
+  /**
+   * Waits for the operations in flight and stops the threads of the client. The node is left open.
+   */
+  @Override
+  public void close() throws InterruptedException {
+    drain();
+    retries.shutdown();
+    waiters.shutdown();
+  }
+}
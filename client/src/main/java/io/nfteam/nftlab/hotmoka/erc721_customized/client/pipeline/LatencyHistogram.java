@@ -0,0 +1,92 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds, with logarithmic buckets: values below 16 have a bucket
+ * each, larger values share a bucket with the values within 1/8 of them. Recording is lock-free,
+ * hence the threads of a pipeline can record concurrently.
+ */
+public final class LatencyHistogram {
+  private static final int SUB_BUCKETS = 8;
+  private static final int LINEAR = 2 * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(LINEAR + 60 * SUB_BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    counts.incrementAndGet(bucketOf(value));
+    count.incrementAndGet();
+    sum.addAndGet(value);
+    max.accumulateAndGet(value, Math::max);
+  }
+
+  public long count() {
+    return count.get();
+  }
+
+  public long max() {
+    return max.get();
+  }
+
+  public long mean() {
+    long n = count.get();
+
+    return n == 0 ? 0 : sum.get() / n;
+  }
+
+  /**
+   * Yields an upper bound of the given percentile, within the precision of the buckets.
+   *
+   * @param percentile between 0 and 100
+   */
+  public long percentile(double percentile) {
+    long n = count.get();
+    if (n == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(n * percentile / 100));
+    long seen = 0;
+    for (int bucket = 0; bucket < counts.length(); bucket++) {
+      seen += counts.get(bucket);
+      if (seen >= rank) {
+        return Math.min(upperBoundOf(bucket), max.get());
+      }
+    }
+
+    return max.get();
+  }
+
+  private static int bucketOf(long value) {
+    if (value < LINEAR) {
+      return (int) value;
+    }
+
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+
+    return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+  }
+
+  private static long upperBoundOf(int bucket) {
+    if (bucket < LINEAR) {
+      return bucket;
+    }
+
+    int exponent = (bucket - LINEAR) / SUB_BUCKETS + 4;
+    long sub = (bucket - LINEAR) % SUB_BUCKETS;
+
+    return ((SUB_BUCKETS + sub + 1) << (exponent - 3)) - 1;
+  }
+
+  @Override
+  public String toString() {
+    return "{\"count\":" + count() + ",\"meanMicros\":" + mean() / 1000 + ",\"p50Micros\":" + percentile(50) / 1000
+      + ",\"p99Micros\":" + percentile(99) / 1000 + ",\"maxMicros\":" + max() / 1000 + "}";
+  }
+}
@@ -0,0 +1,50 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client.pipeline;
+
+import io.hotmoka.beans.signatures.MethodSignature;
+import io.hotmoka.beans.values.StorageReference;
+import io.hotmoka.beans.values.StorageValue;
+
+/**
+ * A call to a method of a token, paid by one of the accounts of a (@link BulkClient).
+ * Mints and transfers are calls like any other: the client only cares about who pays.
+ */
+public final class Operation {
+
+  /**
+   * The name of the operation in the reports, such as "mint" or "transferFrom".
+   */
+  public final String name;
+
+  public final StorageReference payer;
+  public final MethodSignature method;
+  public final StorageReference receiver;
+  private final StorageValue[] actuals;
+
+  private Operation(String name, StorageReference payer, MethodSignature method, StorageReference receiver, StorageValue[] actuals) {
+    this.name = name;
+    this.payer = payer;
+    this.method = method;
+    this.receiver = receiver;
+    this.actuals = actuals.clone();
+  }
+
+  /**
+   * @param name the name of the operation in the reports
+   * @param payer the account that calls the method and pays for it
+   * @param method the method to call
+   * @param receiver the token, or any other object, whose method is called
+   * @param actuals the arguments of the call
+   */
+  public static Operation of(String name, StorageReference payer, MethodSignature method, StorageReference receiver, StorageValue... actuals) {
+    return new Operation(name, payer, method, receiver, actuals);
+  }
+
+  StorageValue[] actuals() {
+    return actuals.clone();
+  }
+
+  @Override
+  public String toString() {
+    return name + " by " + payer;
+  }
+}
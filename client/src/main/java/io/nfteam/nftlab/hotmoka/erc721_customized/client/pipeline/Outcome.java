@@ -0,0 +1,55 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client.pipeline;
+
+import io.hotmoka.beans.references.TransactionReference;
+
+/**
+ * How an (@link Operation) ended.
+ */
+public final class Outcome {
+  public enum Status {
+    /**
+     * The transaction was committed and its method returned normally.
+     */
+    COMMITTED,
+
+    /**
+     * The transaction was committed but its method threw, for instance because a requirement of
+     * the token did not hold. The payer paid for it, hence it is not retried.
+     */
+    FAILED,
+
+    /**
+     * The node rejected the transaction at each attempt, for instance because of a stale nonce.
+     * Rejected transactions are not paid.
+     */
+    REJECTED
+  }
+
+  public final Operation operation;
+  public final Status status;
+
+  /**
+   * The transaction of the last attempt, or null if no attempt reached the node.
+   */
+  public final TransactionReference transaction;
+
+  public final int attempts;
+
+  /**
+   * Why the operation failed or was rejected, null if it was committed.
+   */
+  public final Exception cause;
+
+  Outcome(Operation operation, Status status, TransactionReference transaction, int attempts, Exception cause) {
+    this.operation = operation;
+    this.status = status;
+    this.transaction = transaction;
+    this.attempts = attempts;
+    this.cause = cause;
+  }
+
+  @Override
+  public String toString() {
+    return operation + ": " + status + " after " + attempts + " attempt(s)" + (cause != null ? " (" + cause.getMessage() + ")" : "");
+  }
+}
@@ -0,0 +1,100 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client.pipeline;
+
+import java.math.BigInteger;
+import java.util.Objects;
+
+/**
+ * The parameters of a (@link BulkClient). The chain id and the gas price are those of the node:
+ * the client does not guess them.
+ */
+public final class PipelineConfig {
+  public final String chainId;
+  public final BigInteger gasPrice;
+  public final BigInteger gasLimit;
+
+  /**
+   * How many operations can be in flight at once, over all accounts. Submitting more blocks the caller.
+   */
+  public final int maxInFlight;
+
+  /**
+   * How many times an operation is sent before it is reported as rejected.
+   */
+  public final int maxAttempts;
+
+  /**
+   * The pause before the first retry of an operation, doubled at each further retry.
+   */
+  public final long retryBackoffMillis;
+
+  /**
+   * How many threads wait for the commit of the transactions.
+   */
+  public final int waiters;
+
+  private PipelineConfig(Builder builder) {
+    this.chainId = builder.chainId;
+    this.gasPrice = builder.gasPrice;
+    this.gasLimit = builder.gasLimit;
+    this.maxInFlight = builder.maxInFlight;
+    this.maxAttempts = builder.maxAttempts;
+    this.retryBackoffMillis = builder.retryBackoffMillis;
+    this.waiters = builder.waiters;
+  }
+
+  public static class Builder {
+    private final String chainId;
+    private final BigInteger gasPrice;
+    private BigInteger gasLimit = BigInteger.valueOf(100_000_000L);
+    private int maxInFlight = 256;
+    private int maxAttempts = 3;
+    private long retryBackoffMillis = 50;
+    private int waiters = 16;
+
+    public Builder(String chainId, BigInteger gasPrice) {
+      this.chainId = Objects.requireNonNull(chainId, "chainId cannot be null");
+      this.gasPrice = Objects.requireNonNull(gasPrice, "gasPrice cannot be null");
+    }
+
+    public Builder setGasLimit(BigInteger gasLimit) {
+      this.gasLimit = Objects.requireNonNull(gasLimit, "gasLimit cannot be null");
+      return this;
+    }
+
+    public Builder setMaxInFlight(int maxInFlight) {
+      this.maxInFlight = positive(maxInFlight, "maxInFlight");
+      return this;
+    }
+
+    public Builder setMaxAttempts(int maxAttempts) {
+      this.maxAttempts = positive(maxAttempts, "maxAttempts");
+      return this;
+    }
+
+    public Builder setRetryBackoffMillis(long retryBackoffMillis) {
+      if (retryBackoffMillis < 0) {
+        throw new IllegalArgumentException("retryBackoffMillis cannot be negative");
+      }
+
+      this.retryBackoffMillis = retryBackoffMillis;
+      return this;
+    }
+
+    public Builder setWaiters(int waiters) {
+      this.waiters = positive(waiters, "waiters");
+      return this;
+    }
+
+    public PipelineConfig build() {
+      return new PipelineConfig(this);
+    }
+
+    private static int positive(int value, String name) {
+      if (value <= 0) {
+        throw new IllegalArgumentException(name + " must be positive");
+      }
+
+      return value;
+    }
+  }
+}
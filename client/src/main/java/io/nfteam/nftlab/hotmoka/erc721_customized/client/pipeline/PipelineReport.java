@@ -0,0 +1,131 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.client.pipeline;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The latencies and the outcomes of the operations of a (@link BulkClient), updated while they run.
+ */
+public final class PipelineReport {
+  public enum Stage {
+    /**
+     * Waiting for a free slot, when too many operations are in flight.
+     */
+    QUEUE,
+
+    /**
+     * Building and signing a request.
+     */
+    SIGN,
+
+    /**
+     * Posting a request to the node, until the node accepts it.
+     */
+    SUBMIT,
+
+    /**
+     * From the acceptance of a request to the commit of its transaction.
+     */
+    COMMIT,
+
+    /**
+     * From the submission of an operation to its outcome, retries included.
+     */
+    TOTAL
+  }
+
+  private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+  private final AtomicLong committed = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong retries = new AtomicLong();
+  private final AtomicLong resyncs = new AtomicLong();
+  private final long start = System.nanoTime();
+
+  PipelineReport() {
+    for (Stage stage: Stage.values()) {
+      histograms.put(stage, new LatencyHistogram());
+    }
+  }
+
+  public LatencyHistogram latencies(Stage stage) {
+    return histograms.get(stage);
+  }
+
+  public long committed() {
+    return committed.get();
+  }
+
+  public long failed() {
+    return failed.get();
+  }
+
+  public long rejected() {
+    return rejected.get();
+  }
+
+  /**
+   * The attempts beyond the first one of each operation.
+   */
+  public long retries() {
+    return retries.get();
+  }
+
+  /**
+   * How many times the nonce of an account was read again from the node.
+   */
+  public long resyncs() {
+    return resyncs.get();
+  }
+
+  /**
+   * The committed operations per second, since the creation of the client.
+   */
+  public double throughput() {
+    long elapsed = System.nanoTime() - start;
+
+    return elapsed == 0 ? 0 : committed.get() * 1e9 / elapsed;
+  }
+
+  void record(Stage stage, long nanos) {
+    histograms.get(stage).record(nanos);
+  }
+
+  void record(Outcome outcome) {
+    switch (outcome.status) {
+      case COMMITTED: committed.incrementAndGet(); break;
+      case FAILED: failed.incrementAndGet(); break;
+      default: rejected.incrementAndGet();
+    }
+  }
+
+  void retried() {
+    retries.incrementAndGet();
+  }
+
+  void resynced() {
+    resyncs.incrementAndGet();
+  }
+
+  /**
+   * A JSON object, in the format of the reports of the benchmarks.
+   */
+  @Override
+  public String toString() {
+    var json = new StringBuilder()
+      .append("{\"committed\":").append(committed())
+      .append(",\"failed\":").append(failed())
+      .append(",\"rejected\":").append(rejected())
+      .append(",\"retries\":").append(retries())
+      .append(",\"resyncs\":").append(resyncs())
+      .append(",\"throughput\":").append(String.format(Locale.ROOT, "%.1f", throughput()));
+
+    for (Stage stage: Stage.values()) {
+      json.append(",\"").append(stage.name().toLowerCase()).append("\":").append(histograms.get(stage));
+    }
+
+    return json.append('}').toString();
+  }
+}
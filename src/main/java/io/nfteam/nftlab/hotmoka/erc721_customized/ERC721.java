@@ -1,35 +1,222 @@
 package io.nfteam.nftlab.hotmoka.erc721_customized;
 
+import io.nfteam.nftlab.hotmoka.erc721_customized.ledger.TokenLedger;
+import io.nfteam.nftlab.hotmoka.erc721_customized.ledger.TokenLedgerView;
+import io.nfteam.nftlab.hotmoka.erc721_customized.internal.ERC721Support;
+import io.nfteam.nftlab.hotmoka.erc721_customized.ledger.TreeTokenLedger;
 import io.takamaka.code.lang.*;
 import io.takamaka.code.math.UnsignedBigInteger;
-import io.takamaka.code.util.StorageMap;
-import io.takamaka.code.util.StorageMapView;
-import io.takamaka.code.util.StorageTreeMap;
+import io.takamaka.code.util.*;
+
+import java.math.BigInteger;
 
 public class ERC721 extends Contract implements IERC721Metadata {
   private final String name;
   private final String symbol;
-  private final boolean generateEvents;
+  private final EventPolicy eventPolicy;
+
+  // Number of modifications of the state of this token, used to identify its snapshots
+  private long version;
+
+  // The token id that (@link #_mintNext(Contract)) assigns next; it is greater than every minted token id.
+  // It is null until the first mint, so that (@link #_startTokenId()) is not called by the constructor
+  private UnsignedBigInteger nextTokenId;
+
   protected final UnsignedBigInteger ZERO = UnsignedBigInteger.valueOf(0);
   protected final UnsignedBigInteger ONE = UnsignedBigInteger.valueOf(1);
 
-  private final StorageMap<UnsignedBigInteger, Contract> owners = new StorageTreeMap<>();
+  // The owners and the approvals of the tokens
+  private final TokenLedger ledger;
+
   private final StorageMap<Contract, UnsignedBigInteger> balances = new StorageTreeMap<>();
-  private final StorageMap<UnsignedBigInteger, Contract> tokenApprovals = new StorageTreeMap<>();
-  private final StorageMap<Contract, StorageMap<Contract, Boolean>> operatorApprovals = new StorageTreeMap<>();
+
+  // Mapping from owner to its operators; a missing owner has no operators
+  private final StorageMap<Contract, Operators> operatorApprovals = new StorageTreeMap<>();
+
+  // The receivers that accept every token, hence are not called anymore
+  private final StorageSet<Contract> acceptingReceivers = new StorageTreeSet<>();
+
+  // The operation counters, null unless instrumentation has been enabled
+  private Counters counters;
+
+  /**
+   * The mutable counters of an instrumented token.
+   */
+  private static final class Counters extends Storage {
+    private final long summaryInterval;
+    private long mints;
+    private long transfers;
+    private long burns;
+    private long approvals;
+    private long ledgerReads;
+    private long ledgerWrites;
+    private long events;
+
+    // The number of operations at which the next summary is emitted
+    private long nextSummaryAt;
+
+    private Counters(long summaryInterval) {
+      this.summaryInterval = summaryInterval;
+      this.nextSummaryAt = summaryInterval;
+    }
+
+    private ERC721Stats stats() {
+      return new ERC721Stats(mints, transfers, burns, approvals, ledgerReads, ledgerWrites, events);
+    }
+  }
+
+  // The latest change of each key, null unless the change log has been enabled
+  private ChangeLog changeLog;
+
+  /**
+   * A bounded log that keeps the latest change of each token and account. Changes are ordered by
+   * position: the version they modified, in the high bits, and their order within the version,
+   * in the low 32 bits. When a key changes again, its previous change is dropped.
+   */
+  private static final class ChangeLog extends Storage {
+    private final int capacity;
+    private final StorageMap<BigInteger, ERC721Change> changes = new StorageTreeMap<>();
+    private final StorageMap<UnsignedBigInteger, BigInteger> tokenPositions = new StorageTreeMap<>();
+    private final StorageMap<Contract, BigInteger> accountPositions = new StorageTreeMap<>();
+
+    // The version of the latest change and the order of the next change within that version
+    private long lastVersion = -1;
+    private long nextOrder;
+
+    // Changes to versions before this have been discarded, to respect the capacity
+    private long firstCompleteVersion;
+
+    private ChangeLog(int capacity) {
+      this.capacity = capacity;
+    }
+
+    private void log(long version, UnsignedBigInteger tokenId, Contract account) {
+      if (version != lastVersion) {
+        lastVersion = version;
+        nextOrder = 0;
+      }
+
+      BigInteger position = BigInteger.valueOf(version).shiftLeft(32).or(BigInteger.valueOf(nextOrder++));
+
+      BigInteger previous = tokenId != null ? tokenPositions.get(tokenId) : accountPositions.get(account);
+      if (previous != null) {
+        changes.remove(previous);
+      } else if (changes.size() == capacity) {
+        discardOldest();
+      }
+
+      changes.put(position, new ERC721Change(position, version, tokenId, account));
+
+      if (tokenId != null) {
+        tokenPositions.put(tokenId, position);
+      } else {
+        accountPositions.put(account, position);
+      }
+    }
+
+    private void discardOldest() {
+      BigInteger oldest = changes.min();
+      ERC721Change change = changes.get(oldest);
+      changes.remove(oldest);
+
+      if (change.tokenId != null) {
+        tokenPositions.remove(change.tokenId);
+      } else {
+        accountPositions.remove(change.account);
+      }
+
+      firstCompleteVersion = change.version + 1;
+    }
+
+    /**
+     * Yields at most (@code limit) changes, in order, starting at the first position not smaller than (@code from).
+     */
+    private StorageArrayView<ERC721Change> page(BigInteger from, int limit) {
+      Takamaka.require(limit >= 0, "ERC721: negative page bounds");
+
+      ERC721Change[] found = new ERC721Change[Math.min(limit, changes.size())];
+      int length = 0;
+      while (length < found.length && !changes.isEmpty() && from.compareTo(changes.max()) <= 0) {
+        BigInteger position = changes.ceilingKey(from);
+        found[length++] = changes.get(position);
+        from = position.add(BigInteger.ONE);
+      }
+
+      StorageArray<ERC721Change> page = new StorageTreeArray<>(length);
+      for (int i = 0; i < length; i++) {
+        page.set(i, found[i]);
+      }
+
+      return page.snapshot();
+    }
+  }
+
+  /**
+   * An immutable list of the operators approved by an owner. Owners approve few operators,
+   * hence a linear scan is cheaper than a map per owner. Since the list is immutable,
+   * the snapshots of (@code operatorApprovals) share it safely.
+   */
+  private static final class Operators extends Storage {
+    private final Contract operator;
+    private final Operators next;
+
+    private Operators(Contract operator, Operators next) {
+      this.operator = operator;
+      this.next = next;
+    }
+
+    private static boolean contains(Operators operators, Contract operator) {
+      for (; operators != null; operators = operators.next) {
+        if (operators.operator.equals(operator)) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    /**
+     * Yields (@code operators) without (@code operator), sharing the tail that follows it.
+     */
+    private static Operators without(Operators operators, Contract operator) {
+      if (operators.operator.equals(operator)) {
+        return operators.next;
+      }
+
+      return new Operators(operators.operator, without(operators.next, operator));
+    }
+  }
 
   public
   ERC721(String name, String symbol) {
-    this.name = name;
-    this.symbol = symbol;
-    this.generateEvents = false;
+    this(name, symbol, EventPolicy.NONE);
   }
 
   public
   ERC721(String name, String symbol, boolean generateEvents) {
+    this(name, symbol, generateEvents ? EventPolicy.ALL : EventPolicy.NONE);
+  }
+
+  public
+  ERC721(String name, String symbol, EventPolicy eventPolicy) {
+    this(name, symbol, eventPolicy, new TreeTokenLedger());
+  }
+
+  /**
+   * Creates a token that keeps the owners and the approvals of its tokens in (@code ledger),
+   * that must be new and not shared with other tokens: the token binds the ledger to itself,
+   * so that no other contract can modify it.
+   */
+  public
+  ERC721(String name, String symbol, EventPolicy eventPolicy, TokenLedger ledger) {
+    Takamaka.require(ledger != null, "ERC721: null ledger");
+
     this.name = name;
     this.symbol = symbol;
-    this.generateEvents = generateEvents;
+    this.eventPolicy = eventPolicy;
+    this.ledger = ledger;
+
+    ledger.bind();
   }
 
   // ============ Getters ============
@@ -48,25 +235,131 @@ public class ERC721 extends Contract implements IERC721Metadata {
 
   @Override @FromContract
   public void safeTransferFrom(Contract from, Contract to, UnsignedBigInteger tokenId) {
-    safeTransferFrom(from, to, tokenId, "".getBytes());
+    _safeTransferFrom(caller(), from, to, tokenId, null);
   }
 
   @Override @FromContract
   public void transferFrom(Contract from, Contract to, UnsignedBigInteger tokenId) {
-    Takamaka.require(_isApprovedOrOwner(caller(), tokenId), "ERC721: transfer caller is not owner nor approved");
-
-    _transfer(from, to, tokenId);
+    _transferFrom(caller(), from, to, tokenId);
   }
 
   @Override @FromContract
   public void safeTransferFrom(Contract from, Contract to, UnsignedBigInteger tokenId, byte[] data) {
-    Takamaka.require(_isApprovedOrOwner(caller(), tokenId), "ERC721: transfer caller is not owner nor approved");
-    _safeTransfer(from, to, tokenId, data);
+    _safeTransferFrom(caller(), from, to, tokenId, data);
+  }
+
+  private void _safeTransferFrom(Contract spender, Contract from, Contract to, UnsignedBigInteger tokenId, byte[] data) {
+    _transferFrom(spender, from, to, tokenId);
+
+    Takamaka.require(
+      _checkOnERC721Received(spender, from, to, tokenId, data),
+      "ERC721: transfer to non ERC721Receiver implementer"
+    );
+  }
+
+  @Override @FromContract
+  public void batchTransferFrom(Contract from, Contract to, StorageArrayView<UnsignedBigInteger> tokenIds) {
+    _batchTransferFrom(caller(), from, to, ERC721Support.toArray(tokenIds));
+  }
+
+  /**
+   * Transfers all (@code tokenIds) from (@code from) to (@code to) on behalf of (@code spender).
+   */
+  protected void _batchTransferFrom(Contract spender, Contract from, Contract to, UnsignedBigInteger[] tokenIds) {
+    Takamaka.require(to != null, "ERC721: transfer to the zero address");
+
+    // Approval for all only depends on the owner, hence it is resolved once for the whole batch
+    boolean approvedForAll = spender.equals(from) || isApprovedForAll(from, spender);
+
+    for (UnsignedBigInteger tokenId : tokenIds) {
+      Contract owner = _ownerOf(tokenId);
+      Takamaka.require(owner != null && owner.equals(from), "ERC721: transfer of token that is not own");
+
+      Contract approved = _getApproved(tokenId);
+      Takamaka.require(approvedForAll || spender.equals(approved), "ERC721: transfer caller is not owner nor approved");
+
+      _beforeTokenTransfer(from, to, tokenId);
+
+      // Clear approvals from the previous owner
+      _clearApproval(from, approved, tokenId);
+
+      _setOwner(tokenId, to);
+    }
+
+    if (eventPolicy.transfers()) {
+      event(new TransferBatch(from, to, tokenIds));
+    }
+
+    UnsignedBigInteger amount = UnsignedBigInteger.valueOf(tokenIds.length);
+    _subtractFromBalance(from, amount);
+    _addToBalance(to, amount);
+    _incrementVersion();
+
+    if (counters != null) {
+      counters.transfers += tokenIds.length;
+      _countLedger(2L * tokenIds.length + 1, tokenIds.length);
+      _recordOperation();
+    }
+  }
+
+  /**
+   * Transfers (@code tokenId) from (@code from) to (@code to) on behalf of (@code spender),
+   * reading the owner and the approval of the token only once.
+   */
+  protected void _transferFrom(Contract spender, Contract from, Contract to, UnsignedBigInteger tokenId) {
+    Contract owner = _ownerOf(tokenId);
+    Takamaka.require(owner != null, "ERC721: operator query for nonexistent token");
+
+    Contract approved = _getApproved(tokenId);
+    Takamaka.require(_isApprovedOrOwner(spender, owner, approved), "ERC721: transfer caller is not owner nor approved");
+
+    Takamaka.require(owner.equals(from), "ERC721: transfer of token that is not own");
+    Takamaka.require(to != null, "ERC721: transfer to the zero address");
+
+    if (counters != null) {
+      _countLedger(2, 0);
+    }
+
+    _transfer(from, to, tokenId, approved);
   }
 
+  /**
+   * Transfers (@code tokenId) like (@link #_transfer(Contract, Contract, UnsignedBigInteger)), checking
+   * that (@code to) accepts it. The operator notified to the receiver is null, since there is no caller.
+   *
+   * @param data the data passed to the receiver; null stands for no data
+   */
   protected void _safeTransfer(Contract from, Contract to, UnsignedBigInteger tokenId, byte[] data) {
     _transfer(from, to, tokenId);
-    // TODO: Call to _checkOnERC721Received
+
+    Takamaka.require(
+      _checkOnERC721Received(null, from, to, tokenId, data),
+      "ERC721: transfer to non ERC721Receiver implementer"
+    );
+  }
+
+  /**
+   * Checks that (@code to) accepts (@code tokenId), after it has been transferred to it.
+   * Externally owned accounts accept every token and are not called. Other contracts must implement
+   * (@link IERC721Receiver) and are called, unless they have already answered
+   * (@link IERC721Receiver.Acceptance#ACCEPTED_ALWAYS).
+   *
+   * @param data the data passed to the receiver; null stands for no data
+   * @return true if and only if (@code to) accepts the token
+   */
+  protected boolean _checkOnERC721Received(Contract operator, Contract from, Contract to, UnsignedBigInteger tokenId, byte[] data) {
+    IERC721Receiver.Acceptance acceptance = ERC721Support.knownAcceptance(to, acceptingReceivers);
+
+    // The receiver must see this token as caller, hence only the call is not shared
+    if (acceptance == null) {
+      acceptance = ((IERC721Receiver) to).onERC721Received(operator, from, tokenId, data != null ? data : new byte[0]);
+
+      if (acceptance == IERC721Receiver.Acceptance.ACCEPTED_ALWAYS) {
+        acceptingReceivers.add(to);
+      }
+    }
+
+    return acceptance != null && acceptance != IERC721Receiver.Acceptance.REJECTED;
   }
 
   protected void _beforeTokenTransfer(Contract from, Contract to, UnsignedBigInteger tokenId) { }
@@ -75,88 +368,401 @@ public class ERC721 extends Contract implements IERC721Metadata {
     Takamaka.require(ownerOf(tokenId).equals(from), "ERC721: transfer of token that is not own");
     Takamaka.require(to != null, "ERC721: transfer to the zero address");
 
+    if (counters != null) {
+      _countLedger(2, 0);
+    }
+
+    _transfer(from, to, tokenId, _getApproved(tokenId));
+  }
+
+  /**
+   * Transfers (@code tokenId) from its owner (@code from), whose approved account
+   * (@code approved) has already been read, to (@code to).
+   */
+  private void _transfer(Contract from, Contract to, UnsignedBigInteger tokenId, Contract approved) {
     _beforeTokenTransfer(from, to, tokenId);
 
     // Clear approvals from the previous owner
-    _approve(null, tokenId);
+    _clearApproval(from, approved, tokenId);
+
+    _subtractFromBalance(from, ONE);
+    _addToBalance(to, ONE);
+    _setOwner(tokenId, to);
+    _incrementVersion();
 
-    balances.put(from, balanceOf(from).subtract(ONE));
-    balances.put(to, balanceOf(to).add(ONE));
-    owners.put(tokenId, to);
+    if (eventPolicy.transfers()) {
+      event(new Transfer(from, to, tokenId));
+    }
 
-    event(new Transfer(from, to, tokenId));
+    if (counters != null) {
+      counters.transfers++;
+      _countLedger(0, 1);
+      _recordOperation();
+    }
   }
 
   // ============ Approvals ============
 
   @Override @FromContract
   public void approve(Contract to, UnsignedBigInteger tokenId) {
-    Contract owner = ownerOf(tokenId);
+    _approve(ownerOf(tokenId), to, tokenId);
+  }
 
+  /**
+   * Approves (@code to) for (@code tokenId), whose (@code owner) has already been read.
+   */
+  protected void _approve(Contract owner, Contract to, UnsignedBigInteger tokenId) {
     Takamaka.require(!owner.equals(to), "ERC721: approval to current owner");
 
 //    Takamaka.require(caller().equals(owner) || isApprovedForAll(owner, caller()),
 //      "ERC721: approve caller is not owner nor approved for all"
 //    );
 
-    _approve(to, tokenId);
+    // An approval that changes nothing is neither written nor emitted. Operators differ: an unchanged
+    // set of operators is not written either, but (@link ApprovalForAll) and (@link AllOperatorsRevoked)
+    // are emitted anyway, as a confirmation of the request
+    Contract approved = _getApproved(tokenId);
+    boolean changed = to == null ? approved != null : !to.equals(approved);
+    if (changed) {
+      _setApproved(tokenId, to);
+      _incrementVersion();
+
+      if (eventPolicy.approvals()) {
+        event(new Approval(owner, to, tokenId));
+      }
+    }
+
+    if (counters != null) {
+      counters.approvals++;
+      _countLedger(2, changed ? 1 : 0);
+      _recordOperation();
+    }
   }
 
-  private void _approve(Contract to, UnsignedBigInteger tokenId) {
-    tokenApprovals.put(tokenId, to);
-    event(new Approval(ownerOf(tokenId), to, tokenId));
+  /**
+   * Clears the approval of (@code tokenId), owned by (@code owner), whose approved account
+   * (@code approved) has already been read. Nothing is written, nor emitted, if there is no approval.
+   */
+  private void _clearApproval(Contract owner, Contract approved, UnsignedBigInteger tokenId) {
+    if (approved != null) {
+      _setApproved(tokenId, null);
+
+      if (counters != null) {
+        _countLedger(0, 1);
+      }
+
+      if (eventPolicy.approvalClears()) {
+        event(new Approval(owner, null, tokenId));
+      }
+    }
   }
 
   @Override @FromContract
   public void setApprovalForAll(Contract operator, boolean _approved) {
-    Takamaka.require(operator != caller(), "ERC721: approve to caller");
+    _setApprovalForAll(caller(), operator, _approved);
+  }
+
+  /**
+   * Enables or disables (@code operator) to manage all of the assets of (@code owner).
+   * The operators are written only if they change, but the event is emitted in any case.
+   */
+  protected void _setApprovalForAll(Contract owner, Contract operator, boolean _approved) {
+    Takamaka.require(operator != owner, "ERC721: approve to caller");
+
+    Operators operators = operatorApprovals.get(owner);
+
+    if (_approved != Operators.contains(operators, operator)) {
+      operators = _approved ? new Operators(operator, operators) : Operators.without(operators, operator);
+
+      if (operators == null) {
+        operatorApprovals.remove(owner);
+      } else {
+        operatorApprovals.put(owner, operators);
+      }
 
-    operatorApprovals.putIfAbsent(caller(), new StorageTreeMap<>());
+      _logAccountChange(owner);
+      _incrementVersion();
 
-    operatorApprovals.get(caller()).put(operator, _approved);
+      if (counters != null) {
+        _countLedger(0, 1);
+      }
+    }
+
+    if (eventPolicy.approvals()) {
+      event(new ApprovalForAll(owner, operator, _approved));
+    }
 
-    event(new ApprovalForAll(caller(), operator, _approved));
+    if (counters != null) {
+      counters.approvals++;
+      _countLedger(1, 0);
+      _recordOperation();
+    }
+  }
+
+  @Override @FromContract
+  public void revokeAllOperators() {
+    _revokeAllOperators(caller());
+  }
+
+  /**
+   * Disables all the operators of (@code owner).
+   * The operators are written only if there are any, but the event is emitted in any case.
+   */
+  protected void _revokeAllOperators(Contract owner) {
+    boolean hadOperators = operatorApprovals.get(owner) != null;
+    if (hadOperators) {
+      operatorApprovals.remove(owner);
+      _logAccountChange(owner);
+      _incrementVersion();
+    }
+
+    if (eventPolicy.approvals()) {
+      event(new AllOperatorsRevoked(owner));
+    }
+
+    if (counters != null) {
+      counters.approvals++;
+      _countLedger(1, hadOperators ? 1 : 0);
+      _recordOperation();
+    }
   }
 
   @Override @View
   public Contract getApproved(UnsignedBigInteger tokenId) {
     Takamaka.require(_exists(tokenId), "ERC721: approved query for nonexistent token");
 
-    return tokenApprovals.get(tokenId);
+    return _getApproved(tokenId);
   }
 
   @Override @View
   public final boolean isApprovedForAll(Contract owner, Contract operator) {
-    return operatorApprovals.getOrDefault(owner, StorageTreeMap::new).getOrDefault(operator, false);
+    return Operators.contains(operatorApprovals.get(owner), operator);
   }
 
   protected boolean _isApprovedOrOwner(Contract spender, UnsignedBigInteger tokenId) {
-    Takamaka.require(_exists(tokenId), "ERC721: operator query for nonexistent token");
-    Contract owner = ownerOf(tokenId);
+    Contract owner = _ownerOf(tokenId);
+    Takamaka.require(owner != null, "ERC721: operator query for nonexistent token");
 
-    return (spender.equals(owner) || getApproved(tokenId).equals(spender) || isApprovedForAll(owner, spender));
+    return _isApprovedOrOwner(spender, owner, _getApproved(tokenId));
+  }
+
+  /**
+   * Checks if (@code spender) can manage a token whose (@code owner) and (@code approved) account have already been read.
+   */
+  protected boolean _isApprovedOrOwner(Contract spender, Contract owner, Contract approved) {
+    return spender.equals(owner) || spender.equals(approved) || isApprovedForAll(owner, spender);
   }
 
   // ============ MINT ============
 
   protected void _safeMint(Contract to, UnsignedBigInteger tokenId) {
-    _safeMint(to, tokenId, "".getBytes());
+    _safeMint(to, tokenId, null);
   }
 
+  /**
+   * Mints (@code tokenId) like (@link #_mint(Contract, UnsignedBigInteger)), checking that (@code to) accepts it.
+   *
+   * @param data the data passed to the receiver; null stands for no data
+   */
   protected void _safeMint(Contract to, UnsignedBigInteger tokenId, byte[] data) {
     _mint(to, tokenId);
-    // TODO: _checkOnERC721Received call
+
+    Takamaka.require(
+      _checkOnERC721Received(null, null, to, tokenId, data),
+      "ERC721: transfer to non ERC721Receiver implementer"
+    );
   }
 
   protected void _mint(Contract to, UnsignedBigInteger tokenId) {
     Takamaka.require(to != null, "ERC721: mint to the zero address");
     Takamaka.require(!_exists(tokenId), "ERC721: token already minted");
+    _advanceNextTokenId(tokenId);
+
+    if (counters != null) {
+      _countLedger(1, 0);
+    }
+
+    _mintNew(to, tokenId);
+  }
+
+  /**
+   * Mints the next token of the sequence and transfers it to (@code to).
+   * Sequential token ids are greater than every minted token id, hence they
+   * are new by construction and no existence lookup is needed.
+   *
+   * Requirements:
+   * - (@code to) cannot be the zero address.
+   *
+   * Emits a (@link IERC721.Transfer) event.
+   *
+   * @return the id of the minted token
+   */
+  protected UnsignedBigInteger _mintNext(Contract to) {
+    Takamaka.require(to != null, "ERC721: mint to the zero address");
+
+    UnsignedBigInteger tokenId = _nextTokenId();
+    nextTokenId = tokenId.add(ONE);
+    _mintNew(to, tokenId);
+
+    return tokenId;
+  }
+
+  /**
+   * Mints the next (@code count) tokens of the sequence and transfers them to (@code to),
+   * like (@link #_mintBatch(Contract, UnsignedBigInteger, int)) but without existence lookups.
+   *
+   * Requirements:
+   * - (@code to) cannot be the zero address.
+   * - (@code count) cannot be negative.
+   *
+   * Emits a single (@link IERC721.ConsecutiveTransfer) event.
+   *
+   * @return the id of the first minted token
+   */
+  protected UnsignedBigInteger _mintNext(Contract to, int count) {
+    Takamaka.require(to != null, "ERC721: mint to the zero address");
+    Takamaka.require(count >= 0, "ERC721: negative mint count");
+
+    UnsignedBigInteger firstTokenId = _nextTokenId();
+    nextTokenId = firstTokenId.add(UnsignedBigInteger.valueOf(count));
+    _setOwnerOfNewRange(firstTokenId, count, to);
+    _mintRange(to, firstTokenId, count);
+
+    return firstTokenId;
+  }
+
+  /**
+   * Yields the id of the first token of the sequence minted by (@link #_mintNext(Contract)).
+   * It must not depend on the state of the token.
+   */
+  @View
+  protected UnsignedBigInteger _startTokenId() {
+    return ZERO;
+  }
+
+  /**
+   * Yields the id that (@link #_mintNext(Contract)) will assign next.
+   */
+  @View
+  protected final UnsignedBigInteger _nextTokenId() {
+    return nextTokenId != null ? nextTokenId : _startTokenId();
+  }
+
+  /**
+   * Keeps the sequence above (@code tokenId), that has been minted with an explicit id.
+   */
+  private void _advanceNextTokenId(UnsignedBigInteger tokenId) {
+    if (tokenId.compareTo(_nextTokenId()) >= 0) {
+      nextTokenId = tokenId.add(ONE);
+    }
+  }
+
+  /**
+   * Mints (@code tokenId), that is known not to exist.
+   */
+  private void _mintNew(Contract to, UnsignedBigInteger tokenId) {
     _beforeTokenTransfer(null, to, tokenId);
 
-    balances.put(to, balanceOf(to).add(ONE));
-    owners.put(tokenId, to);
+    _addToBalance(to, ONE);
+    _setOwner(tokenId, to);
+    _incrementVersion();
+
+    if (eventPolicy.transfers()) {
+      event(new Transfer(null, to, tokenId));
+    }
+
+    if (counters != null) {
+      counters.mints++;
+      _countLedger(0, 1);
+      _recordOperation();
+    }
+  }
+
+  /**
+   * Mints every token in (@code tokenIds) and transfers them to (@code to).
+   * Behaves like a sequence of (@link #_mint) calls, but the balance of (@code to)
+   * is read and written only once for the whole batch.
+   *
+   * Cost: each token pays one existence lookup, one ownership write and its
+   * (@link #_beforeTokenTransfer) hook, all logarithmic in the size of the collection;
+   * the balance update is paid once per call. The gas per token is therefore flat
+   * with respect to the size of the batch.
+   *
+   * Requirements:
+   * - (@code to) cannot be the zero address.
+   * - no token in (@code tokenIds) may exist, nor appear twice.
+   *
+   * Emits a single (@link IERC721.TransferBatch) event.
+   */
+  protected void _mintBatch(Contract to, UnsignedBigInteger[] tokenIds) {
+    Takamaka.require(to != null, "ERC721: mint to the zero address");
+
+    for (UnsignedBigInteger tokenId : tokenIds) {
+      Takamaka.require(!_exists(tokenId), "ERC721: token already minted");
+      _advanceNextTokenId(tokenId);
+      _beforeTokenTransfer(null, to, tokenId);
+
+      _setOwner(tokenId, to);
+    }
+
+    if (eventPolicy.transfers()) {
+      event(new TransferBatch(null, to, tokenIds));
+    }
+
+    _addToBalance(to, UnsignedBigInteger.valueOf(tokenIds.length));
+    _incrementVersion();
 
-    event(new Transfer(null, to, tokenId));
+    if (counters != null) {
+      counters.mints += tokenIds.length;
+      _countLedger(tokenIds.length, tokenIds.length);
+      _recordOperation();
+    }
+  }
+
+  /**
+   * Mints the (@code count) consecutive tokens starting at (@code firstTokenId)
+   * and transfers them to (@code to). See (@link #_mintBatch(Contract, UnsignedBigInteger[])).
+   *
+   * Requirements:
+   * - (@code to) cannot be the zero address.
+   * - (@code count) cannot be negative.
+   * - no token in the range may exist.
+   *
+   * Emits a single (@link IERC721.ConsecutiveTransfer) event.
+   */
+  protected void _mintBatch(Contract to, UnsignedBigInteger firstTokenId, int count) {
+    Takamaka.require(to != null, "ERC721: mint to the zero address");
+    Takamaka.require(count >= 0, "ERC721: negative mint count");
+
+    _setOwnerOfRange(firstTokenId, count, to);
+    if (count > 0) {
+      _advanceNextTokenId(firstTokenId.add(UnsignedBigInteger.valueOf(count - 1)));
+    }
+
+    _mintRange(to, firstTokenId, count);
+  }
+
+  /**
+   * Completes the mint of the (@code count) consecutive tokens starting at (@code firstTokenId),
+   * whose owner has already been set to (@code to).
+   */
+  private void _mintRange(Contract to, UnsignedBigInteger firstTokenId, int count) {
+    UnsignedBigInteger tokenId = firstTokenId;
+    for (int i = 0; i < count; i++, tokenId = tokenId.add(ONE)) {
+      _beforeTokenTransfer(null, to, tokenId);
+    }
+
+    if (eventPolicy.transfers() && count > 0) {
+      event(new ConsecutiveTransfer(null, to, firstTokenId, tokenId.subtract(ONE)));
+    }
+
+    _addToBalance(to, UnsignedBigInteger.valueOf(count));
+    _incrementVersion();
+
+    if (counters != null) {
+      counters.mints += count;
+      _recordOperation();
+    }
   }
 
   // ============ Token URI ============
@@ -165,10 +771,20 @@ public class ERC721 extends Contract implements IERC721Metadata {
   public String tokenURI(UnsignedBigInteger tokenId) {
     Takamaka.require(_exists(tokenId), "ERC721Metadata: URI query for nonexistent token");
 
-    String baseURI = _baseURI();
-    return !baseURI.isEmpty()
-      ? baseURI + tokenId.toString()
-      : "";
+    return ERC721Support.tokenURIOf(_baseURI(), tokenId);
+  }
+
+  @Override @View
+  public StorageArrayView<String> tokenURIBatch(StorageArrayView<UnsignedBigInteger> tokenIds) {
+    StorageArray<String> uris = new StorageTreeArray<>(tokenIds.length());
+    for (int i = 0; i < tokenIds.length(); i++) {
+      UnsignedBigInteger tokenId = tokenIds.get(i);
+      if (_exists(tokenId)) {
+        uris.set(i, tokenURI(tokenId));
+      }
+    }
+
+    return uris.snapshot();
   }
 
   @View
@@ -185,25 +801,78 @@ public class ERC721 extends Contract implements IERC721Metadata {
     return balances.getOrDefault(owner, ZERO);
   }
 
+  @Override @View
+  public StorageArrayView<UnsignedBigInteger> balanceOfBatch(StorageArrayView<Contract> owners) {
+    StorageArray<UnsignedBigInteger> result = new StorageTreeArray<>(owners.length());
+    for (int i = 0; i < owners.length(); i++) {
+      Contract owner = owners.get(i);
+      if (owner != null) {
+        result.set(i, balances.getOrDefault(owner, ZERO));
+      }
+    }
+
+    return result.snapshot();
+  }
+
+  private void _addToBalance(Contract owner, UnsignedBigInteger amount) {
+    balances.put(owner, balanceOf(owner).add(amount));
+    _logAccountChange(owner);
+
+    if (counters != null) {
+      _countLedger(1, 1);
+    }
+  }
+
+  private void _subtractFromBalance(Contract owner, UnsignedBigInteger amount) {
+    balances.put(owner, balanceOf(owner).subtract(amount));
+    _logAccountChange(owner);
+
+    if (counters != null) {
+      _countLedger(1, 1);
+    }
+  }
+
   // ============ Owner of ============
 
   @Override @View
   public Contract ownerOf(UnsignedBigInteger tokenId) {
-    Contract owner = owners.get(tokenId);
+    Contract owner = _ownerOf(tokenId);
 
     Takamaka.require(owner != null, "ERC721: owner query for nonexistent token");
 
     return owner;
   }
 
+  @Override @View
+  public StorageArrayView<Contract> ownerOfBatch(StorageArrayView<UnsignedBigInteger> tokenIds) {
+    StorageArray<Contract> result = new StorageTreeArray<>(tokenIds.length());
+    for (int i = 0; i < tokenIds.length(); i++) {
+      result.set(i, _ownerOf(tokenIds.get(i)));
+    }
+
+    return result.snapshot();
+  }
+
   // ============ Snapshot ============
 
+  @Override @View
+  public long version() {
+    return version;
+  }
+
+  /**
+   * Records a modification of the state of this token. Subclasses call it whenever they modify state of their own.
+   */
+  protected final void _incrementVersion() {
+    version++;
+  }
+
   @Exported
   protected class ERC721Snapshot extends Storage implements IERC721View {
-    private final StorageMapView<UnsignedBigInteger, Contract> owners = ERC721.this.owners.snapshot();
+    private final long version = ERC721.this.version;
+    private final TokenLedgerView ledger = ERC721.this.ledger.snapshot();
     private final StorageMapView<Contract, UnsignedBigInteger> balances = ERC721.this.balances.snapshot();
-    private final StorageMapView<UnsignedBigInteger, Contract> tokenApprovals = ERC721.this.tokenApprovals.snapshot();
-    private final StorageMapView<Contract, StorageMap<Contract, Boolean>> operatorApprovals = ERC721.this.operatorApprovals.snapshot();
+    private final StorageMapView<Contract, Operators> operatorApprovals = ERC721.this.operatorApprovals.snapshot();
 
     @Override @View
     public UnsignedBigInteger balanceOf(Contract owner) {
@@ -212,23 +881,67 @@ public class ERC721 extends Contract implements IERC721Metadata {
 
     @Override @View
     public Contract ownerOf(UnsignedBigInteger tokenId) {
-      Contract owner = owners.get(tokenId);
+      Contract owner = _ownerOf(tokenId);
 
       Takamaka.require(owner != null, "ERC721: owner query for nonexistent token");
 
       return owner;
     }
 
+    /**
+     * Yields the owner of (@code tokenId) at the time of the snapshot, or null if the token did not exist.
+     */
+    @View
+    protected Contract _ownerOf(UnsignedBigInteger tokenId) {
+      return ledger.ownerOf(tokenId);
+    }
+
+    /**
+     * Yields the account approved for (@code tokenId) at the time of the snapshot, if any.
+     */
+    @View
+    protected Contract _getApproved(UnsignedBigInteger tokenId) {
+      return ledger.approvedOf(tokenId);
+    }
+
+    @Override @View
+    public StorageArrayView<UnsignedBigInteger> balanceOfBatch(StorageArrayView<Contract> owners) {
+      StorageArray<UnsignedBigInteger> result = new StorageTreeArray<>(owners.length());
+      for (int i = 0; i < owners.length(); i++) {
+        Contract owner = owners.get(i);
+        if (owner != null) {
+          result.set(i, balances.getOrDefault(owner, ZERO));
+        }
+      }
+
+      return result.snapshot();
+    }
+
+    @Override @View
+    public StorageArrayView<Contract> ownerOfBatch(StorageArrayView<UnsignedBigInteger> tokenIds) {
+      StorageArray<Contract> result = new StorageTreeArray<>(tokenIds.length());
+      for (int i = 0; i < tokenIds.length(); i++) {
+        result.set(i, _ownerOf(tokenIds.get(i)));
+      }
+
+      return result.snapshot();
+    }
+
     @Override @View
     public Contract getApproved(UnsignedBigInteger tokenId) {
-      Takamaka.require(_exists(tokenId), "ERC721: approved query for nonexistent token");
+      Takamaka.require(_ownerOf(tokenId) != null, "ERC721: approved query for nonexistent token");
 
-      return tokenApprovals.get(tokenId);
+      return _getApproved(tokenId);
     }
 
     @Override @View
     public boolean isApprovedForAll(Contract owner, Contract operator) {
-      return operatorApprovals.getOrDefault(owner, StorageTreeMap::new).getOrDefault(operator, false);
+      return Operators.contains(operatorApprovals.get(owner), operator);
+    }
+
+    @Override @View
+    public long version() {
+      return version;
     }
 
     @Override @View
@@ -244,37 +957,416 @@ public class ERC721 extends Contract implements IERC721Metadata {
 
   // ============ Burn ============
 
-  protected void _burn(UnsignedBigInteger tokenId) {
-    Contract owner = ownerOf(tokenId);
+  /**
+   * Destroys (@code tokenId), reading its owner and its approved account.
+   * This method is final, since the public burns, such as (@code ERC721Burnable.burn) and the burns
+   * of the shards of a collection, have already read both and call
+   * (@link #_burn(Contract, Contract, UnsignedBigInteger)) directly: subclasses that used to redefine
+   * this method must redefine that one instead, which every single burn goes through.
+   *
+   * Requirements:
+   * - (@code tokenId) must exist.
+   */
+  protected final void _burn(UnsignedBigInteger tokenId) {
+    if (counters != null) {
+      _countLedger(2, 0);
+    }
+
+    _burn(ownerOf(tokenId), _getApproved(tokenId), tokenId);
+  }
 
+  /**
+   * Destroys (@code tokenId), whose (@code owner) and (@code approved) account have already been read.
+   * Subclasses that clean up state of their own on burn redefine this method, since every single burn goes
+   * through it, and (@link #_burnBatch(Contract, UnsignedBigInteger[])) for batch burns.
+   */
+  protected void _burn(Contract owner, Contract approved, UnsignedBigInteger tokenId) {
     _beforeTokenTransfer(owner, null, tokenId);
 
     // Clear approvals
-    _approve(null, tokenId);
+    _clearApproval(owner, approved, tokenId);
+
+    _subtractFromBalance(owner, ONE);
+    _setOwner(tokenId, null);
+    _incrementVersion();
+
+    if (eventPolicy.transfers()) {
+      event(new Transfer(owner, null, tokenId));
+    }
+
+    if (counters != null) {
+      counters.burns++;
+      _countLedger(0, 1);
+      _recordOperation();
+    }
+  }
+
+  /**
+   * Burns all (@code tokenIds), that may belong to different owners, on behalf of (@code spender).
+   * Authorization for all of the tokens of an owner is resolved once per owner, each owner pays
+   * a single balance update and the tokens are removed through a single
+   * (@link #_beforeBurnBatch(Contract[], UnsignedBigInteger[][])) hook.
+   *
+   * Requirements:
+   * - the tokens must exist and be distinct;
+   * - (@code spender) must own each token, or be approved for it, or be an operator of its owner.
+   *
+   * Emits a (@link TransferBatch) event per owner, in order of first appearance of the owners
+   * in (@code tokenIds), with the tokens of the owner in the order of (@code tokenIds).
+   */
+  protected void _burnBatch(Contract spender, UnsignedBigInteger[] tokenIds) {
+    int length = tokenIds.length;
+    Contract[] approved = new Contract[length];
+    int[] groupOf = new int[length];
+
+    // The owners of the tokens, in order of first appearance, whether the spender can burn all of their
+    // tokens and the number of tokens of each. A batch has few owners, hence they are found by a scan,
+    // in memory: nothing of the burn itself is kept in storage
+    Contract[] owners = new Contract[length];
+    boolean[] approvedForAll = new boolean[length];
+    int[] sizes = new int[length];
+    int groups = 0;
+
+    Takamaka.require(!containsDuplicates(tokenIds), "ERC721: token burnt twice");
+
+    for (int i = 0; i < length; i++) {
+      UnsignedBigInteger tokenId = tokenIds[i];
+      Contract owner = _ownerOf(tokenId);
+      Takamaka.require(owner != null, "ERC721: operator query for nonexistent token");
+
+      int group = 0;
+      while (group < groups && !owners[group].equals(owner)) {
+        group++;
+      }
+
+      if (group == groups) {
+        // Approval for all only depends on the owner, hence it is resolved once per owner
+        owners[group] = owner;
+        approvedForAll[group] = spender.equals(owner) || isApprovedForAll(owner, spender);
+        groups++;
+      }
+
+      approved[i] = _getApproved(tokenId);
+      Takamaka.require(approvedForAll[group] || spender.equals(approved[i]), "ERC721: burn caller is not owner nor approved");
+
+      groupOf[i] = group;
+      sizes[group]++;
+    }
+
+    UnsignedBigInteger[][] tokenIdsByOwner = new UnsignedBigInteger[groups][];
+    for (int g = 0; g < groups; g++) {
+      tokenIdsByOwner[g] = new UnsignedBigInteger[sizes[g]];
+      sizes[g] = 0;
+    }
+
+    for (int i = 0; i < length; i++) {
+      tokenIdsByOwner[groupOf[i]][sizes[groupOf[i]]++] = tokenIds[i];
+    }
+
+    Contract[] distinctOwners = new Contract[groups];
+    for (int g = 0; g < groups; g++) {
+      distinctOwners[g] = owners[g];
+    }
 
-    balances.put(owner, balanceOf(owner).subtract(ONE));
-    owners.remove(tokenId);
+    _beforeBurnBatch(distinctOwners, tokenIdsByOwner);
 
-    event(new Transfer(owner, null, tokenId));
+    for (int i = 0; i < length; i++) {
+      // Clear approvals
+      _clearApproval(owners[groupOf[i]], approved[i], tokenIds[i]);
+
+      _setOwner(tokenIds[i], null);
+    }
+
+    for (int g = 0; g < groups; g++) {
+      _subtractFromBalance(distinctOwners[g], UnsignedBigInteger.valueOf(tokenIdsByOwner[g].length));
+
+      if (eventPolicy.transfers()) {
+        event(new TransferBatch(distinctOwners[g], null, tokenIdsByOwner[g]));
+      }
+    }
+
+    _incrementVersion();
+
+    if (counters != null) {
+      counters.burns += length;
+      _countLedger(2L * length, length);
+      _recordOperation();
+    }
+  }
+
+  /**
+   * Hook that is called by (@link #_burnBatch(Contract, UnsignedBigInteger[])) before the tokens are burnt.
+   * By default, it calls (@link #_beforeTokenTransfer(Contract, Contract, UnsignedBigInteger)) for each token;
+   * subclasses redefine it to clean up the state of all of the tokens at once.
+   *
+   * @param owners the distinct owners of the tokens, in the order of the events of the burn
+   * @param tokenIdsByOwner the tokens of each owner, in the order of (@code owners), each in the order of its event
+   */
+  protected void _beforeBurnBatch(Contract[] owners, UnsignedBigInteger[][] tokenIdsByOwner) {
+    for (int g = 0; g < owners.length; g++) {
+      for (UnsignedBigInteger tokenId : tokenIdsByOwner[g]) {
+        _beforeTokenTransfer(owners[g], null, tokenId);
+      }
+    }
+  }
+
+  /**
+   * Checks if a token occurs twice in (@code tokenIds), by sorting a copy of it.
+   */
+  private static boolean containsDuplicates(UnsignedBigInteger[] tokenIds) {
+    UnsignedBigInteger[] sorted = sorted(tokenIds, 0, tokenIds.length);
+    for (int i = 1; i < sorted.length; i++) {
+      if (sorted[i - 1].equals(sorted[i])) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Yields a sorted copy of the tokens of (@code tokenIds) from (@code from), inclusive, to (@code to), exclusive,
+   * by merge sort.
+   */
+  private static UnsignedBigInteger[] sorted(UnsignedBigInteger[] tokenIds, int from, int to) {
+    if (to - from <= 1) {
+      return from < to ? new UnsignedBigInteger[] { tokenIds[from] } : new UnsignedBigInteger[0];
+    }
+
+    int middle = (from + to) >>> 1;
+    UnsignedBigInteger[] left = sorted(tokenIds, from, middle);
+    UnsignedBigInteger[] right = sorted(tokenIds, middle, to);
+
+    UnsignedBigInteger[] result = new UnsignedBigInteger[to - from];
+    int l = 0, r = 0;
+    for (int i = 0; i < result.length; i++) {
+      result[i] = r == right.length || (l < left.length && left[l].compareTo(right[r]) <= 0) ? left[l++] : right[r++];
+    }
+
+    return result;
+  }
+
+  // ============ Ownership and approval storage ============
+
+  /**
+   * Yields the owner of (@code tokenId), or null if the token does not exist.
+   * This is the only read access to the ownership storage, so that subclasses
+   * can redefine how ownership is represented, beyond the choice of the ledger.
+   */
+  @View
+  protected Contract _ownerOf(UnsignedBigInteger tokenId) {
+    return ledger.ownerOf(tokenId);
+  }
+
+  /**
+   * Sets (@code owner) as the owner of (@code tokenId). A null owner deletes the token.
+   * Balances, approvals and events are left to the caller.
+   */
+  protected void _setOwner(UnsignedBigInteger tokenId, Contract owner) {
+    ledger.setOwner(tokenId, owner);
+    _logTokenChange(tokenId);
+  }
+
+  /**
+   * Sets (@code owner) as the owner of the (@code count) consecutive tokens starting
+   * at (@code firstTokenId), none of which may exist yet.
+   * Balances, approvals and events are left to the caller.
+   */
+  protected void _setOwnerOfRange(UnsignedBigInteger firstTokenId, int count, Contract owner) {
+    Takamaka.require(ledger.isFree(firstTokenId, count), "ERC721: token already minted");
+
+    if (counters != null) {
+      _countLedger(count, 0);
+    }
+
+    _setOwnerOfNewRange(firstTokenId, count, owner);
+  }
+
+  /**
+   * Like (@link #_setOwnerOfRange(UnsignedBigInteger, int, Contract)), for a range
+   * that the caller knows to be new, hence without existence checks.
+   */
+  protected void _setOwnerOfNewRange(UnsignedBigInteger firstTokenId, int count, Contract owner) {
+    ledger.setOwnerOfNewRange(firstTokenId, count, owner);
+
+    if (changeLog != null) {
+      UnsignedBigInteger tokenId = firstTokenId;
+      for (int i = 0; i < count; i++, tokenId = tokenId.add(ONE)) {
+        changeLog.log(version, tokenId, null);
+      }
+    }
+
+    if (counters != null) {
+      _countLedger(0, count);
+    }
+  }
+
+  /**
+   * Yields the account approved for (@code tokenId), or null if there is none.
+   */
+  @View
+  protected Contract _getApproved(UnsignedBigInteger tokenId) {
+    return ledger.approvedOf(tokenId);
+  }
+
+  /**
+   * Sets (@code approved) as the account approved for (@code tokenId). A null account clears the approval.
+   */
+  protected void _setApproved(UnsignedBigInteger tokenId, Contract approved) {
+    ledger.setApproved(tokenId, approved);
+    _logTokenChange(tokenId);
   }
 
   // ============ Exists ============
 
   @View
   protected final boolean _exists(UnsignedBigInteger tokenId) {
-    return owners.get(tokenId) != null;
+    return _ownerOf(tokenId) != null;
   }
 
   // ============ Events ============
 
+  /**
+   * Yields the policy that selects the events generated by this token.
+   */
+  protected final EventPolicy _eventPolicy() {
+    return eventPolicy;
+  }
+
   /**
    * Generates the given event if events are allowed for this token.
+   * The events of this class are further filtered by the (@link EventPolicy) of the token.
    *
    * @param event the event to generate
    */
   protected final void event(Event event) {
-    if (generateEvents) {
+    if (eventPolicy != EventPolicy.NONE) {
       Takamaka.event(event);
+
+      if (counters != null) {
+        counters.events++;
+      }
+    }
+  }
+
+  // ============ Change log ============
+
+  /**
+   * Enables the change log of this token, for good, so that mirrors of the token can catch up
+   * with (@link #changesSince(long, int)) in time proportional to the changes, rather than to the
+   * size of the collection. Until this is called, the only cost of the log is a null check per
+   * modified key. Subclasses call it from their constructor.
+   *
+   * @param capacity the maximal number of keys in the log; beyond it, the oldest changes are discarded
+   */
+  protected final void _enableChangeLog(int capacity) {
+    Takamaka.require(changeLog == null, "ERC721: the change log is already enabled");
+    Takamaka.require(capacity > 0, "ERC721: the capacity of the change log must be positive");
+
+    changeLog = new ChangeLog(capacity);
+  }
+
+  /**
+   * Yields the first page of the keys changed in the state of (@code version) and later, that is,
+   * of the keys whose state differs from a snapshot of (@code version). Each key is reported once,
+   * with its latest change. Further pages are read with (@link #changesAfter(BigInteger, int)).
+   *
+   * Requirements:
+   * - the change log must be enabled;
+   * - the changes since (@code version) must not have been discarded.
+   */
+  @View
+  public StorageArrayView<ERC721Change> changesSince(long version, int limit) {
+    Takamaka.require(changeLog != null, "ERC721: the change log is not enabled");
+    Takamaka.require(version >= changeLog.firstCompleteVersion, "ERC721: changes since the version have been discarded");
+
+    return changeLog.page(BigInteger.valueOf(version).shiftLeft(32), limit);
+  }
+
+  /**
+   * Yields the page of changes that follows the change at (@code cursor). A key that changes
+   * between two pages moves after the cursor, hence it is read in a later page.
+   *
+   * Requirements:
+   * - the change log must be enabled;
+   * - the changes since the cursor must not have been discarded.
+   */
+  @View
+  public StorageArrayView<ERC721Change> changesAfter(BigInteger cursor, int limit) {
+    Takamaka.require(changeLog != null, "ERC721: the change log is not enabled");
+    Takamaka.require(cursor.shiftRight(32).compareTo(BigInteger.valueOf(changeLog.firstCompleteVersion)) >= 0,
+      "ERC721: changes since the cursor have been discarded"
+    );
+
+    return changeLog.page(cursor.add(BigInteger.ONE), limit);
+  }
+
+  /**
+   * Records a change of (@code tokenId) in the change log, if enabled. Subclasses call it whenever
+   * they modify state of their own about a token, before (@link #_incrementVersion()).
+   */
+  protected final void _logTokenChange(UnsignedBigInteger tokenId) {
+    if (changeLog != null) {
+      changeLog.log(version, tokenId, null);
+    }
+  }
+
+  /**
+   * Records a change of (@code account) in the change log, if enabled. Subclasses call it whenever
+   * they modify state of their own about an account, before (@link #_incrementVersion()).
+   */
+  protected final void _logAccountChange(Contract account) {
+    if (changeLog != null) {
+      changeLog.log(version, null, account);
+    }
+  }
+
+  // ============ Instrumentation ============
+
+  /**
+   * Enables the operation counters of this token, for good. Until this is called, the only cost
+   * of instrumentation is a null check per operation. Subclasses call it from their constructor.
+   *
+   * @param summaryInterval the number of operations between two (@link ERC721Stats.Summary) events;
+   *                        0 generates no summary
+   */
+  protected final void _enableInstrumentation(long summaryInterval) {
+    Takamaka.require(counters == null, "ERC721: instrumentation is already enabled");
+    Takamaka.require(summaryInterval >= 0, "ERC721: negative summary interval");
+
+    counters = new Counters(summaryInterval);
+  }
+
+  /**
+   * Yields the operation counters of this token.
+   *
+   * Requirements:
+   * - instrumentation must be enabled.
+   */
+  @View
+  public ERC721Stats stats() {
+    Takamaka.require(counters != null, "ERC721: instrumentation is not enabled");
+
+    return counters.stats();
+  }
+
+  private void _countLedger(long reads, long writes) {
+    counters.ledgerReads += reads;
+    counters.ledgerWrites += writes;
+  }
+
+  /**
+   * Counts a completed operation and emits a summary if the interval has elapsed. A batch can count
+   * many operations at once and cross a multiple of the interval without landing on it, hence the
+   * summary is due when the total reaches a threshold, that then moves to the next multiple after the total.
+   */
+  private void _recordOperation() {
+    long interval = counters.summaryInterval;
+    long total = counters.mints + counters.transfers + counters.burns + counters.approvals;
+
+    if (interval > 0 && total >= counters.nextSummaryAt) {
+      Takamaka.event(new ERC721Stats.Summary(counters.stats()));
+      counters.nextSummaryAt = (total / interval + 1) * interval;
     }
   }
 }
@@ -0,0 +1,47 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized;
+
+import io.takamaka.code.lang.Contract;
+import io.takamaka.code.lang.Exported;
+import io.takamaka.code.lang.Storage;
+import io.takamaka.code.math.UnsignedBigInteger;
+
+import java.math.BigInteger;
+
+/**
+ * The latest change of a key of the state of a token: either a token, whose owner, approval
+ * or metadata changed, or an account, whose balance or operators changed. The token contract
+ * itself, as an account, stands for the state of the whole collection, such as the freeze
+ * of its metadata.
+ */
+@Exported
+public final class ERC721Change extends Storage {
+
+  /**
+   * The position of the change in the change log, to pass to (@link ERC721#changesAfter(BigInteger, int))
+   * in order to read the following page.
+   */
+  public final BigInteger cursor;
+
+  /**
+   * The version of the state that the change modified: the change is visible in the snapshots
+   * of later versions only.
+   */
+  public final long version;
+
+  /**
+   * The changed token, or null if an account changed.
+   */
+  public final UnsignedBigInteger tokenId;
+
+  /**
+   * The changed account, or null if a token changed.
+   */
+  public final Contract account;
+
+  ERC721Change(BigInteger cursor, long version, UnsignedBigInteger tokenId, Contract account) {
+    this.cursor = cursor;
+    this.version = version;
+    this.tokenId = tokenId;
+    this.account = account;
+  }
+}
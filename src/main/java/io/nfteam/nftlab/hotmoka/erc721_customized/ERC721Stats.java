@@ -0,0 +1,44 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized;
+
+import io.takamaka.code.lang.Event;
+import io.takamaka.code.lang.Exported;
+import io.takamaka.code.lang.FromContract;
+import io.takamaka.code.lang.Storage;
+
+/**
+ * The operation counters of an instrumented token, at a given moment.
+ * Ledger reads and writes are the accesses to the owners, approvals, operators
+ * and balances of (@link ERC721); the maps of the extensions are not counted.
+ */
+@Exported
+public final class ERC721Stats extends Storage {
+  public final long mints;
+  public final long transfers;
+  public final long burns;
+  public final long approvals;
+  public final long ledgerReads;
+  public final long ledgerWrites;
+  public final long events;
+
+  ERC721Stats(long mints, long transfers, long burns, long approvals, long ledgerReads, long ledgerWrites, long events) {
+    this.mints = mints;
+    this.transfers = transfers;
+    this.burns = burns;
+    this.approvals = approvals;
+    this.ledgerReads = ledgerReads;
+    this.ledgerWrites = ledgerWrites;
+    this.events = events;
+  }
+
+  /**
+   * Emitted periodically by an instrumented token, with its counters.
+   */
+  public static class Summary extends Event {
+    public final ERC721Stats stats;
+
+    @FromContract
+    public Summary(ERC721Stats stats) {
+      this.stats = stats;
+    }
+  }
+}
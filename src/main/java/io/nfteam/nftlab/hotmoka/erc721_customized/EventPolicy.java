@@ -0,0 +1,43 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized;
+
+/**
+ * The events generated by a token. Each policy generates the events of the previous one, and more.
+ */
+public enum EventPolicy {
+  /**
+   * No events are generated.
+   */
+  NONE,
+
+  /**
+   * Only transfers, mints and burns are notified, single or batched.
+   */
+  TRANSFERS,
+
+  /**
+   * Transfers and explicit approvals are notified, but not the implicit clearing
+   * of the approval of a token when it is transferred or burnt.
+   */
+  APPROVALS,
+
+  /**
+   * All events are generated, including the metadata updates of the tokens.
+   */
+  ALL;
+
+  public boolean transfers() {
+    return this != NONE;
+  }
+
+  public boolean approvals() {
+    return this == APPROVALS || this == ALL;
+  }
+
+  public boolean approvalClears() {
+    return this == ALL;
+  }
+
+  public boolean metadataUpdates() {
+    return this == ALL;
+  }
+}
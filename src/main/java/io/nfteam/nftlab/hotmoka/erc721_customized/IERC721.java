@@ -4,6 +4,9 @@ import io.takamaka.code.lang.Contract;
 import io.takamaka.code.lang.Event;
 import io.takamaka.code.lang.FromContract;
 import io.takamaka.code.math.UnsignedBigInteger;
+import io.takamaka.code.util.StorageArray;
+import io.takamaka.code.util.StorageArrayView;
+import io.takamaka.code.util.StorageTreeArray;
 
 public interface IERC721 extends IERC721View {
   /**
@@ -38,13 +41,29 @@ public interface IERC721 extends IERC721View {
   @FromContract
   void transferFrom(Contract from, Contract to, UnsignedBigInteger tokenId);
 
+  /**
+   * Transfers all (@code tokenIds) tokens from (@code from) to (@code to) in a single transaction.
+   * Operator approval is checked once for the whole batch and the balances are updated once.
+   *
+   * Emits a single {IERC721.TransferBatch} event.
+   *
+   * Requirements:
+   * - (@code to) cannot be the zero address.
+   * - every token in (@code tokenIds) must be owned by (@code from).
+   * - If the caller is not (@code from), it must be approved to move each token by either {approve} or {setApprovalForAll}.
+   *
+   * The tokens are passed as a storage array, so that the method can be called by a transaction.
+   */
+  @FromContract
+  void batchTransferFrom(Contract from, Contract to, StorageArrayView<UnsignedBigInteger> tokenIds);
+
     /**
      * Gives permission to (@code to) to transfer tokenId @code token to another account.
      * The approval is cleared when the token is transferred.
      *
      * Only a single account can be approved at a time, so approving the zero address clears previous approvals.
      *
-     * Emits an {IERC721.Approval} event.
+     * Emits an {IERC721.Approval} event, unless (@code to) is already approved for the token.
      *
      * Requirements:
      * - The caller must own the token or be an approved operator.
@@ -66,6 +85,14 @@ public interface IERC721 extends IERC721View {
   @FromContract
   void setApprovalForAll(Contract operator, boolean _approved);
 
+  /**
+   * Removes all operators of the caller at once, in constant time.
+   *
+   * Emits an {IERC721.AllOperatorsRevoked} event.
+   */
+  @FromContract
+  void revokeAllOperators();
+
   /**
    * Safely transfers (@code tokenId) token from (@code from) to @code to.
    *
@@ -98,6 +125,48 @@ public interface IERC721 extends IERC721View {
     }
   }
 
+  /**
+   * Emitted instead of a (@link Transfer) per token when (@code tokenIds) tokens are transferred,
+   * minted or burnt together from (@code from) to (@code to).
+   */
+  class TransferBatch extends Event {
+    public final Contract from;
+    public final Contract to;
+    public final StorageArrayView<UnsignedBigInteger> tokenIds;
+
+    @FromContract
+    public TransferBatch(Contract from, Contract to, UnsignedBigInteger[] tokenIds) {
+      this.from = from;
+      this.to = to;
+
+      StorageArray<UnsignedBigInteger> ids = new StorageTreeArray<>(tokenIds.length);
+      for (int i = 0; i < tokenIds.length; i++) {
+        ids.set(i, tokenIds[i]);
+      }
+
+      this.tokenIds = ids.snapshot();
+    }
+  }
+
+  /**
+   * Emitted instead of a (@link Transfer) per token when all tokens from (@code fromTokenId) to
+   * (@code toTokenId), inclusive, are transferred, minted or burnt together from (@code from) to (@code to).
+   */
+  class ConsecutiveTransfer extends Event {
+    public final Contract from;
+    public final Contract to;
+    public final UnsignedBigInteger fromTokenId;
+    public final UnsignedBigInteger toTokenId;
+
+    @FromContract
+    public ConsecutiveTransfer(Contract from, Contract to, UnsignedBigInteger fromTokenId, UnsignedBigInteger toTokenId) {
+      this.from = from;
+      this.to = to;
+      this.fromTokenId = fromTokenId;
+      this.toTokenId = toTokenId;
+    }
+  }
+
   /**
    * Emitted when (@code owner) enables (@code approved) to manage the (@code tokenId) token.
    */
@@ -129,4 +198,16 @@ public interface IERC721 extends IERC721View {
       this.approved = approved;
     }
   }
+
+  /**
+   * Emitted when (@code owner) removes all of its operators at once.
+   */
+  class AllOperatorsRevoked extends Event {
+    public final Contract owner;
+
+    @FromContract
+    public AllOperatorsRevoked(Contract owner) {
+      this.owner = owner;
+    }
+  }
 }
@@ -1,7 +1,10 @@
 package io.nfteam.nftlab.hotmoka.erc721_customized;
 
+import io.takamaka.code.lang.Event;
+import io.takamaka.code.lang.FromContract;
 import io.takamaka.code.lang.View;
 import io.takamaka.code.math.UnsignedBigInteger;
+import io.takamaka.code.util.StorageArrayView;
 
 public interface IERC721Metadata extends IERC721 {
   /**
@@ -21,4 +24,23 @@ public interface IERC721Metadata extends IERC721 {
    */
   @View
   String tokenURI(UnsignedBigInteger tokenId);
+
+  /**
+   * Returns the Uniform Resource Identifier (URI) for each of (@code tokenIds), in the same order.
+   * The entry of a nonexistent token is null.
+   */
+  @View
+  StorageArrayView<String> tokenURIBatch(StorageArrayView<UnsignedBigInteger> tokenIds);
+
+  /**
+   * Emitted when the URI of (@code tokenId) changes, so that clients can refresh its metadata.
+   */
+  class MetadataUpdate extends Event {
+    public final UnsignedBigInteger tokenId;
+
+    @FromContract
+    public MetadataUpdate(UnsignedBigInteger tokenId) {
+      this.tokenId = tokenId;
+    }
+  }
 }
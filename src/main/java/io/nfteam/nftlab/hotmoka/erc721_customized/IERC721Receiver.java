@@ -0,0 +1,45 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized;
+
+import io.takamaka.code.lang.Contract;
+import io.takamaka.code.lang.FromContract;
+import io.takamaka.code.math.UnsignedBigInteger;
+
+/**
+ * Interface for any contract that wants to support safe transfers from ERC721 tokens.
+ * Externally owned accounts receive tokens without implementing it.
+ */
+public interface IERC721Receiver {
+  /**
+   * The answer of a receiver to a safe transfer.
+   */
+  enum Acceptance {
+    /**
+     * The token is rejected and the transfer is reverted.
+     */
+    REJECTED,
+
+    /**
+     * The token is accepted.
+     */
+    ACCEPTED,
+
+    /**
+     * The token is accepted, and so is every token later sent to this same receiver: the token
+     * stops calling it, hence it must not need to see the later transfers. A receiver only
+     * answers for itself, never for other contracts, not even of its same class.
+     */
+    ACCEPTED_ALWAYS
+  }
+
+  /**
+   * Called by a token, as caller, whenever (@code tokenId) is transferred to this contract by
+   * (@code operator) from (@code from), through a safe transfer or a safe mint.
+   *
+   * @param operator the account that moved the token, null for internal transfers and mints
+   * @param from the previous owner of the token, null for mints
+   * @param data the additional data of the transfer, with no specified format
+   * @return the decision of this receiver
+   */
+  @FromContract
+  Acceptance onERC721Received(Contract operator, Contract from, UnsignedBigInteger tokenId, byte[] data);
+}
@@ -3,6 +3,7 @@ package io.nfteam.nftlab.hotmoka.erc721_customized;
 import io.takamaka.code.lang.Contract;
 import io.takamaka.code.lang.View;
 import io.takamaka.code.math.UnsignedBigInteger;
+import io.takamaka.code.util.StorageArrayView;
 
 public interface IERC721View {
   /**
@@ -34,6 +35,29 @@ public interface IERC721View {
   @View
   boolean isApprovedForAll(Contract owner, Contract operator);
 
+  /**
+   * @param owners: accounts whose balance you want to check
+   * @return the number of tokens owned by each of (@code owners), in the same order;
+   *         the entry of a null account is null
+   */
+  @View
+  StorageArrayView<UnsignedBigInteger> balanceOfBatch(StorageArrayView<Contract> owners);
+
+  /**
+   * @param tokenIds: token indexes whose owner you want to check
+   * @return the owner of each of (@code tokenIds), in the same order;
+   *         the entry of a nonexistent token is null
+   */
+  @View
+  StorageArrayView<Contract> ownerOfBatch(StorageArrayView<UnsignedBigInteger> tokenIds);
+
+  /**
+   * @return the version of the state of the token, that increases at each of its modifications;
+   *         a snapshot keeps the version of the state it was taken from
+   */
+  @View
+  long version();
+
   @View
   IERC721View snapshot();
 }
@@ -1,9 +1,14 @@
 package io.nfteam.nftlab.hotmoka.erc721_customized.extensions;
 
 import io.nfteam.nftlab.hotmoka.erc721_customized.ERC721;
+import io.nfteam.nftlab.hotmoka.erc721_customized.EventPolicy;
+import io.nfteam.nftlab.hotmoka.erc721_customized.internal.ERC721Support;
+import io.nfteam.nftlab.hotmoka.erc721_customized.ledger.TokenLedger;
+import io.takamaka.code.lang.Contract;
 import io.takamaka.code.lang.FromContract;
 import io.takamaka.code.lang.Takamaka;
 import io.takamaka.code.math.UnsignedBigInteger;
+import io.takamaka.code.util.StorageArrayView;
 
 abstract public class ERC721Burnable extends ERC721
 {
@@ -15,6 +20,14 @@ abstract public class ERC721Burnable extends ERC721
     super(name, symbol, generateEvents);
   }
 
+  public ERC721Burnable(String name, String symbol, EventPolicy eventPolicy) {
+    super(name, symbol, eventPolicy);
+  }
+
+  public ERC721Burnable(String name, String symbol, EventPolicy eventPolicy, TokenLedger ledger) {
+    super(name, symbol, eventPolicy, ledger);
+  }
+
   /**
    * Burns (@code tokenId)`. See (@link ERC721._burn).
    *
@@ -24,8 +37,25 @@ abstract public class ERC721Burnable extends ERC721
    */
    @FromContract
    public void burn(UnsignedBigInteger tokenId) {
-    Takamaka.require(_isApprovedOrOwner(caller(), tokenId), "ERC721Burnable: caller is not owner nor approved");
+    Contract owner = _ownerOf(tokenId);
+    Takamaka.require(owner != null, "ERC721: operator query for nonexistent token");
+
+    Contract approved = _getApproved(tokenId);
+    Takamaka.require(_isApprovedOrOwner(caller(), owner, approved), "ERC721Burnable: caller is not owner nor approved");
+
+    _burn(owner, approved, tokenId);
+  }
 
-    _burn(tokenId);
+  /**
+   * Burns all (@code tokenIds), that may belong to different owners, with a single balance update
+   * per owner. See (@link ERC721._burnBatch).
+   *
+   * Requirements:
+   *
+   * - The caller must own each token or be an approved operator.
+   */
+   @FromContract
+   public void burnBatch(StorageArrayView<UnsignedBigInteger> tokenIds) {
+    _burnBatch(caller(), ERC721Support.toArray(tokenIds));
   }
 }
@@ -0,0 +1,220 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.extensions;
+
+import io.nfteam.nftlab.hotmoka.erc721_customized.ERC721;
+import io.nfteam.nftlab.hotmoka.erc721_customized.EventPolicy;
+import io.nfteam.nftlab.hotmoka.erc721_customized.ledger.TokenLedger;
+import io.takamaka.code.lang.*;
+import io.takamaka.code.math.UnsignedBigInteger;
+import io.takamaka.code.util.*;
+
+import java.math.BigInteger;
+
+/**
+ * An ERC721 with the per-token URIs of (@link ERC721URIStorage), that stores each URI as a single number, made of the id of
+ * an interned prefix and of a compact binary suffix: an IPFS CIDv0 takes its 32 bytes digest
+ * instead of 46 characters. URIs are rebuilt only when read.
+ *
+ * Prefixes are registered with (@link #_addURIPrefix(String)) and each URI is stored with
+ * the longest registered prefix that it starts with. A URI shared by many tokens, such as
+ * the placeholder of an unrevealed drop, can itself be registered as a prefix, so that
+ * each token stores just its id.
+ */
+abstract public class ERC721CompactURIStorage extends ERC721 implements IERC721URIStorageView {
+  // Mapping from token ID to its encoded URI, see (@link URICodec)
+  private final StorageMap<UnsignedBigInteger, BigInteger> tokenURIs = new StorageTreeMap<>();
+
+  // The interned prefixes, indexed by their id; the id 0 stands for the empty prefix and is not stored
+  private final StorageIntMap<String> prefixes = new StorageTreeIntMap<>();
+
+  // Mapping from interned prefix to its id
+  private final StorageMap<String, Integer> prefixIds = new StorageTreeMap<>();
+
+  // Mapping from the length of the interned prefixes to how many prefixes have that length,
+  // so that a URI is only looked up with the lengths of some prefix
+  private final StorageIntMap<Integer> prefixLengths = new StorageTreeIntMap<>();
+
+  public ERC721CompactURIStorage(String name, String symbol) {
+    super(name, symbol);
+  }
+
+  public ERC721CompactURIStorage(String name, String symbol, boolean generateEvents) {
+    super(name, symbol, generateEvents);
+  }
+
+  public ERC721CompactURIStorage(String name, String symbol, EventPolicy eventPolicy) {
+    super(name, symbol, eventPolicy);
+  }
+
+  public ERC721CompactURIStorage(String name, String symbol, EventPolicy eventPolicy, TokenLedger ledger) {
+    super(name, symbol, eventPolicy, ledger);
+  }
+
+  @View
+  public String tokenURI(UnsignedBigInteger tokenId) {
+    Takamaka.require(_exists(tokenId), "ERC721CompactURIStorage: URI query for nonexistent token");
+
+    String tokenURI = decode(prefixes, tokenURIs.get(tokenId));
+    String base = _baseURI();
+
+    if (base.isEmpty()) {
+      return tokenURI;
+    }
+    if (!tokenURI.isEmpty()) {
+      return base + tokenURI;
+    }
+
+    return super.tokenURI(tokenId);
+  }
+
+  /**
+   * Registers a prefix for the URIs of the tokens. Registering a prefix twice has no effect.
+   * Only the URIs set afterwards are stored with the prefix.
+   *
+   * @return the id of the prefix
+   */
+  protected int _addURIPrefix(String prefix) {
+    Takamaka.require(!prefix.isEmpty(), "ERC721CompactURIStorage: empty URI prefix");
+
+    Integer registered = prefixIds.get(prefix);
+    if (registered != null) {
+      return registered;
+    }
+
+    int id = prefixes.size() + 1;
+    Takamaka.require(id < URICodec.MAX_PREFIXES, "ERC721CompactURIStorage: too many URI prefixes");
+    prefixes.put(id, prefix);
+    prefixIds.put(prefix, id);
+    prefixLengths.put(prefix.length(), prefixLengths.getOrDefault(prefix.length(), 0) + 1);
+
+    return id;
+  }
+
+  /**
+   * Sets (@code _tokenURI) as the tokenURI of (@code tokenId).
+   *
+   * Requirements:
+   *
+   * - (@code tokenId) must exist.
+   *
+   * Emits a (@link MetadataUpdate) event, if the event policy of the token is (@link EventPolicy#ALL).
+   */
+  protected void _setTokenURI(UnsignedBigInteger tokenId, String tokenURI) {
+    Takamaka.require(_exists(tokenId), "ERC721CompactURIStorage: URI set of nonexistent token");
+    tokenURIs.put(tokenId, encode(tokenURI));
+    _logTokenChange(tokenId);
+    _incrementVersion();
+
+    if (_eventPolicy().metadataUpdates()) {
+      event(new MetadataUpdate(tokenId));
+    }
+  }
+
+  /**
+   * Destroys (@code tokenId).
+   * The approval is cleared when the token is burned.
+   *
+   * Requirements:
+   * - (@code tokenId) must exist.
+   *
+   * Emits a (@link ERC721.Transfer) event.
+   */
+  @Override
+  protected void _burn(Contract owner, Contract approved, UnsignedBigInteger tokenId) {
+    super._burn(owner, approved, tokenId);
+
+    tokenURIs.remove(tokenId);
+  }
+
+  @Override
+  protected void _burnBatch(Contract spender, UnsignedBigInteger[] tokenIds) {
+    super._burnBatch(spender, tokenIds);
+
+    for (UnsignedBigInteger tokenId : tokenIds) {
+      tokenURIs.remove(tokenId);
+    }
+  }
+
+  /**
+   * Encodes (@code uri) with the longest registered prefix that it starts with. The beginnings of
+   * (@code uri) are looked up from the longest, only for the lengths of some registered prefix,
+   * hence the cost does not depend on the number of prefixes.
+   */
+  private BigInteger encode(String uri) {
+    if (!prefixLengths.isEmpty()) {
+      int shortest = prefixLengths.min();
+
+      for (int length = uri.length(); length >= shortest; ) {
+        length = prefixLengths.floorKey(length);
+
+        Integer id = prefixIds.get(uri.substring(0, length));
+        if (id != null) {
+          return URICodec.encode(id, uri.substring(length));
+        }
+
+        length--;
+      }
+    }
+
+    return URICodec.encode(0, uri);
+  }
+
+  /**
+   * Rebuilds the URI encoded as (@code code), the empty string if null.
+   */
+  private static String decode(StorageIntMapView<String> prefixes, BigInteger code) {
+    if (code == null) {
+      return "";
+    }
+
+    int prefixId = URICodec.prefixId(code);
+    String suffix = URICodec.suffix(code);
+
+    return prefixId == 0 ? suffix : prefixes.get(prefixId) + suffix;
+  }
+
+  @Exported
+  protected class ERC721CompactURIStorageSnapshot extends ERC721Snapshot implements IERC721URIStorageView {
+    private final StorageMapView<UnsignedBigInteger, BigInteger> tokenURIs = ERC721CompactURIStorage.this.tokenURIs.snapshot();
+    private final StorageIntMapView<String> prefixes = ERC721CompactURIStorage.this.prefixes.snapshot();
+
+    @Override @View
+    public String tokenURI(UnsignedBigInteger tokenId) {
+      Takamaka.require(_ownerOf(tokenId) != null, "ERC721CompactURIStorage: URI query for nonexistent token");
+
+      String tokenURI = decode(prefixes, tokenURIs.get(tokenId));
+      String base = _baseURI();
+
+      if (base.isEmpty()) {
+        return tokenURI;
+      }
+      if (!tokenURI.isEmpty()) {
+        return base + tokenURI;
+      }
+
+      return _baseURI() + tokenId.toString();
+    }
+
+    @Override @View
+    public StorageArrayView<String> tokenURIBatch(StorageArrayView<UnsignedBigInteger> tokenIds) {
+      StorageArray<String> uris = new StorageTreeArray<>(tokenIds.length());
+      for (int i = 0; i < tokenIds.length(); i++) {
+        UnsignedBigInteger tokenId = tokenIds.get(i);
+        if (_ownerOf(tokenId) != null) {
+          uris.set(i, tokenURI(tokenId));
+        }
+      }
+
+      return uris.snapshot();
+    }
+
+    @Override @View
+    public IERC721URIStorageView snapshot() {
+      return this;
+    }
+  }
+
+  @Override @View
+  public IERC721URIStorageView snapshot() {
+    return new ERC721CompactURIStorageSnapshot();
+  }
+}
@@ -0,0 +1,29 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.extensions;
+
+import io.nfteam.nftlab.hotmoka.erc721_customized.ERC721;
+import io.nfteam.nftlab.hotmoka.erc721_customized.EventPolicy;
+import io.nfteam.nftlab.hotmoka.erc721_customized.ledger.RangeTokenLedger;
+
+/**
+ * An ERC721 whose ownership is range-compressed: a run of consecutive tokens with the same owner
+ * is stored as a single entry, keyed by the first token of the run. Minting a range of tokens
+ * with (@link ERC721#_mintBatch(io.takamaka.code.lang.Contract, io.takamaka.code.math.UnsignedBigInteger, int))
+ * hence writes a single entry, whatever the size of the range.
+ *
+ * It is an ERC721 over a (@link RangeTokenLedger); other extensions select that ledger
+ * through their constructors instead.
+ */
+abstract public class ERC721Consecutive extends ERC721 {
+
+  public ERC721Consecutive(String name, String symbol) {
+    this(name, symbol, EventPolicy.NONE);
+  }
+
+  public ERC721Consecutive(String name, String symbol, boolean generateEvents) {
+    this(name, symbol, generateEvents ? EventPolicy.ALL : EventPolicy.NONE);
+  }
+
+  public ERC721Consecutive(String name, String symbol, EventPolicy eventPolicy) {
+    super(name, symbol, eventPolicy, new RangeTokenLedger());
+  }
+}
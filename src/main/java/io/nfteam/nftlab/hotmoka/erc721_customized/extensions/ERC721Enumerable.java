@@ -1,24 +1,43 @@
 package io.nfteam.nftlab.hotmoka.erc721_customized.extensions;
 
 import io.nfteam.nftlab.hotmoka.erc721_customized.ERC721;
+import io.nfteam.nftlab.hotmoka.erc721_customized.EventPolicy;
+import io.nfteam.nftlab.hotmoka.erc721_customized.ledger.TokenLedger;
 import io.takamaka.code.lang.*;
 import io.takamaka.code.math.UnsignedBigInteger;
 import io.takamaka.code.util.*;
 
 abstract public class ERC721Enumerable extends ERC721 implements IERC721EnumerableView {
 
-  // Mapping from owner to list of owned token IDs
-  private final StorageMap<Contract, StorageMap<UnsignedBigInteger, UnsignedBigInteger>> ownedTokens =
-    new StorageTreeMap<>();
+  // The lists of owned token IDs of all owners, flattened into a single map with immutable values, so that
+  // its snapshot shares them: the token at index i of the list of an owner is at key ownerKeys(owner) + i.
+  // The length of a list is found from its last key, hence it is not stored
+  private final StorageMap<UnsignedBigInteger, UnsignedBigInteger> ownedTokens = new StorageTreeMap<>();
 
-  // Mapping from token ID to index of the owner tokens list
-  private final StorageMap<UnsignedBigInteger, UnsignedBigInteger> ownedTokensIndex = new StorageTreeMap<>();
+  // Mapping from owner to the first key of its list in ownedTokens. An owner keeps its key, even after
+  // its list gets empty, and the lists of distinct owners are (@link #LIST_SPAN) keys apart
+  private final StorageMap<Contract, UnsignedBigInteger> ownerKeys = new StorageTreeMap<>();
 
-  // Array with all token ids, used for enumeration
-  private final StorageMap<UnsignedBigInteger, UnsignedBigInteger> allTokens = new StorageTreeMap<>();
+  // The number of owners that have been given a key so far
+  private int keyedOwners;
 
-  // Mapping from token id to position in the allTokens array
-  private final StorageMap<UnsignedBigInteger, UnsignedBigInteger> allTokensIndex = new StorageTreeMap<>();
+  // The number of keys reserved to the list of each owner
+  private static final long LIST_SPAN = 1L << 32;
+
+  // Array with all token ids, used for enumeration, indexed from zero. Its entries override
+  // the implicit prefix below, hence it is sparse while tokens are minted in sequence
+  private final StorageIntMap<UnsignedBigInteger> allTokens = new StorageTreeIntMap<>();
+
+  // Tokens minted in sequence, such as by (@code _mintNext), are not written into allTokens:
+  // the token at index i < implicitTokens is firstImplicitTokenId + i, unless allTokens overrides it
+  private UnsignedBigInteger firstImplicitTokenId;
+  private int implicitTokens;
+
+  // The length of the allTokens array
+  private int allTokensCount;
+
+  // Mapping from token ID to its positions in the owner tokens list and in the allTokens array
+  private final StorageMap<UnsignedBigInteger, Position> positions = new StorageTreeMap<>();
 
   public ERC721Enumerable(String name, String symbol) {
     super(name, symbol);
@@ -28,10 +47,31 @@ abstract public class ERC721Enumerable extends ERC721 implements IERC721Enumerab
     super(name, symbol, generateEvents);
   }
 
+  public ERC721Enumerable(String name, String symbol, EventPolicy eventPolicy) {
+    super(name, symbol, eventPolicy);
+  }
+
+  public ERC721Enumerable(String name, String symbol, EventPolicy eventPolicy, TokenLedger ledger) {
+    super(name, symbol, eventPolicy, ledger);
+  }
+
+  /**
+   * The positions of a token in the list of its owner and in the allTokens array.
+   * Keeping both in the same entry halves the lookups of a transfer or burn.
+   */
+  private static final class Position extends Storage {
+    private final int owned;
+    private final int global;
+
+    private Position(int owned, int global) {
+      this.owned = owned;
+      this.global = global;
+    }
+  }
 
   @Override @View
   public UnsignedBigInteger totalSupply() {
-    return UnsignedBigInteger.valueOf(allTokens.size());
+    return UnsignedBigInteger.valueOf(allTokensCount);
   }
 
   @Override @View
@@ -41,27 +81,151 @@ abstract public class ERC721Enumerable extends ERC721 implements IERC721Enumerab
       "ERC721Enumerable: owner index out of bounds"
     );
 
-    return ownedTokens.getOrDefault(owner, StorageTreeMap::new).getOrDefault(index, (UnsignedBigInteger) null);
+    return ownedTokens.get(ownerKeys.get(owner).add(index));
   }
 
   @Override @View
   public UnsignedBigInteger tokenByIndex(UnsignedBigInteger index) {
     Takamaka.require(index.compareTo(totalSupply()) < 0, "ERC721Enumerable: global index out of bounds");
 
-    return allTokens.get(index.toBigInteger().intValue());
+    return tokenAt(allTokens, firstImplicitTokenId, index.toBigInteger().intValue());
+  }
+
+  @Override @View
+  public StorageArrayView<UnsignedBigInteger> tokensOfOwner(Contract owner, int offset, int limit) {
+    return page(ownedTokens, ownerKeys.get(owner), offset, limit);
+  }
+
+  @Override @View
+  public StorageArrayView<UnsignedBigInteger> tokensByRange(int offset, int limit) {
+    return page(allTokens, firstImplicitTokenId, allTokensCount, offset, limit);
+  }
+
+  /**
+   * Yields the token at (@code index) of the allTokens array, that must be in bounds.
+   *
+   * @param allTokens the entries of the array that are not implicit
+   * @param firstImplicitTokenId the first token of the implicit prefix of the array
+   */
+  private static UnsignedBigInteger tokenAt(StorageIntMapView<UnsignedBigInteger> allTokens,
+                                            UnsignedBigInteger firstImplicitTokenId, int index) {
+    UnsignedBigInteger tokenId = allTokens.get(index);
+
+    return tokenId != null ? tokenId : firstImplicitTokenId.add(UnsignedBigInteger.valueOf(index));
+  }
+
+  /**
+   * Yields a page of the allTokens array, see (@link #page(StorageMapView, UnsignedBigInteger, int, int)).
+   */
+  private static StorageArrayView<UnsignedBigInteger> page(StorageIntMapView<UnsignedBigInteger> allTokens,
+                                                           UnsignedBigInteger firstImplicitTokenId, int size, int offset, int limit) {
+    Takamaka.require(offset >= 0 && limit >= 0, "ERC721Enumerable: negative page bounds");
+
+    int length = Math.max(0, Math.min(limit, size - offset));
+    StorageArray<UnsignedBigInteger> page = new StorageTreeArray<>(length);
+    for (int i = 0; i < length; i++) {
+      page.set(i, tokenAt(allTokens, firstImplicitTokenId, offset + i));
+    }
+
+    return page.snapshot();
+  }
+
+  /**
+   * Yields the page of the list of an owner of at most (@code limit) elements starting at (@code offset),
+   * as an immutable array.
+   *
+   * @param ownedTokens the flattened lists of all owners
+   * @param first the first key of the list of the owner; null stands for the empty list
+   */
+  private static StorageArrayView<UnsignedBigInteger> page(StorageMapView<UnsignedBigInteger, UnsignedBigInteger> ownedTokens,
+                                                           UnsignedBigInteger first, int offset, int limit) {
+    Takamaka.require(offset >= 0 && limit >= 0, "ERC721Enumerable: negative page bounds");
+
+    int size = first != null ? sizeOf(ownedTokens, first) : 0;
+    int length = Math.max(0, Math.min(limit, size - offset));
+    StorageArray<UnsignedBigInteger> page = new StorageTreeArray<>(length);
+    for (int i = 0; i < length; i++) {
+      page.set(i, ownedTokens.get(keyOf(first, offset + i)));
+    }
+
+    return page.snapshot();
+  }
+
+  /**
+   * Yields the length of the list of an owner, from the last key of the list that is in use.
+   *
+   * @param ownedTokens the flattened lists of all owners
+   * @param first the first key of the list of the owner
+   */
+  private static int sizeOf(StorageMapView<UnsignedBigInteger, UnsignedBigInteger> ownedTokens, UnsignedBigInteger first) {
+    UnsignedBigInteger end = keyOf(first, LIST_SPAN - 1);
+    if (ownedTokens.isEmpty() || end.compareTo(ownedTokens.min()) < 0) {
+      return 0;
+    }
+
+    UnsignedBigInteger last = ownedTokens.floorKey(end);
+
+    return last.compareTo(first) < 0 ? 0 : last.subtract(first).toBigInteger().intValue() + 1;
+  }
+
+  /**
+   * Yields the key of the element at (@code index) of the list that starts at key (@code first).
+   */
+  private static UnsignedBigInteger keyOf(UnsignedBigInteger first, long index) {
+    return first.add(UnsignedBigInteger.valueOf(index));
   }
 
   @Override
   protected void _beforeTokenTransfer(Contract from, Contract to, UnsignedBigInteger tokenId) {
     if (from == null) {
-      _addTokenToAllTokensEnumeration(tokenId);
+      int global = _addTokenToAllTokensEnumeration(tokenId);
+      positions.put(tokenId, new Position(_addTokenToOwnerEnumeration(to, tokenId), global));
+    } else if (to == null) {
+      Position position = positions.get(tokenId);
+      _removeTokenFromOwnerEnumeration(from, position.owned);
+      _removeTokenFromAllTokensEnumeration(position.global);
+      positions.remove(tokenId);
     } else if (from != to) {
-      _removeTokenFromOwnerEnumeration(from, tokenId);
+      Position position = positions.get(tokenId);
+      _removeTokenFromOwnerEnumeration(from, position.owned);
+      positions.put(tokenId, new Position(_addTokenToOwnerEnumeration(to, tokenId), position.global));
     }
-    if (to == null) {
-      _removeTokenFromAllTokensEnumeration(tokenId);
-    } else if (to != from) {
-      _addTokenToOwnerEnumeration(to, tokenId);
+  }
+
+  /**
+   * Removes all the tokens of a batch burn from the enumeration, writing each list once instead of
+   * running a swap and pop per token. The lists end up exactly as after a swap and pop per token,
+   * in the order of the (@link IERC721.TransferBatch) events of the burn, so that indexes that
+   * replay the events, such as the off-chain ones, agree with the contract.
+   */
+  @Override
+  protected void _beforeBurnBatch(Contract[] owners, UnsignedBigInteger[][] tokenIdsByOwner) {
+    int total = 0;
+    for (UnsignedBigInteger[] tokenIds : tokenIdsByOwner) {
+      total += tokenIds.length;
+    }
+
+    // The positions of the burnt tokens do not change while the lists are compacted
+    int[] global = new int[total];
+    int next = 0;
+    for (int g = 0; g < owners.length; g++) {
+      UnsignedBigInteger[] tokenIds = tokenIdsByOwner[g];
+      int[] owned = new int[tokenIds.length];
+      for (int i = 0; i < tokenIds.length; i++) {
+        Position position = positions.get(tokenIds[i]);
+        owned[i] = position.owned;
+        global[next++] = position.global;
+      }
+
+      _removeTokensFromOwnerEnumeration(owners[g], owned);
+    }
+
+    _removeTokensFromAllTokensEnumeration(global);
+
+    for (UnsignedBigInteger[] tokenIds : tokenIdsByOwner) {
+      for (UnsignedBigInteger tokenId : tokenIds) {
+        positions.remove(tokenId);
+      }
     }
   }
 
@@ -70,117 +234,294 @@ abstract public class ERC721Enumerable extends ERC721 implements IERC721Enumerab
    *
    * @param to      address representing the new owner of the given token ID
    * @param tokenId uint256 ID of the token to be added to the tokens list of the given address
+   * @return the index of the token in the tokens list of (@code to)
    */
-  private void _addTokenToOwnerEnumeration(Contract to, UnsignedBigInteger tokenId) {
-    UnsignedBigInteger length = balanceOf(to);
+  private int _addTokenToOwnerEnumeration(Contract to, UnsignedBigInteger tokenId) {
+    UnsignedBigInteger first = ownerKeys.get(to);
+    if (first == null) {
+      first = UnsignedBigInteger.valueOf(keyedOwners++ * LIST_SPAN);
+      ownerKeys.put(to, first);
+    }
 
-    ownedTokens.putIfAbsent(to, new StorageTreeMap<>());
-    ownedTokens.get(to).put(length, tokenId);
+    // The length of the list is used instead of the balance, since batch operations
+    // update the balance only after all hooks have run
+    int length = sizeOf(ownedTokens, first);
+    ownedTokens.put(keyOf(first, length), tokenId);
 
-    ownedTokensIndex.put(tokenId, length);
+    return length;
   }
 
   /**
    * Private function to add a token to this extension's token tracking data structures.
+   * A token that continues the implicit prefix of the array is not written.
    *
    * @param tokenId uint256 ID of the token to be added to the tokens list
+   * @return the index of the token in the allTokens array
    */
-  private void _addTokenToAllTokensEnumeration(UnsignedBigInteger tokenId) {
-    UnsignedBigInteger index = UnsignedBigInteger.valueOf(allTokens.size());
-    allTokensIndex.put(tokenId, UnsignedBigInteger.valueOf(allTokens.size()));
-    allTokens.put(index, tokenId);
+  private int _addTokenToAllTokensEnumeration(UnsignedBigInteger tokenId) {
+    int length = allTokensCount;
+
+    if (length == 0) {
+      firstImplicitTokenId = tokenId;
+      implicitTokens = 1;
+    } else if (length == implicitTokens && tokenId.equals(firstImplicitTokenId.add(UnsignedBigInteger.valueOf(length)))) {
+      implicitTokens++;
+    } else {
+      allTokens.put(length, tokenId);
+    }
+
+    allTokensCount++;
+
+    return length;
   }
 
   /**
-   * Private function to remove a token from this extension's ownership-tracking data structures. Note that
-   * while the token is not assigned a new owner, the `_ownedTokensIndex` mapping is _not_ updated: this allows for
-   * gas optimizations e.g. when performing a transfer operation (avoiding double writes).
+   * Private function to remove a token from this extension's ownership-tracking data structures.
+   * The position of the removed token is left to the caller, that either deletes or rewrites it.
    * This has O(1) time complexity, but alters the order of the _ownedTokens array.
    *
-   * @param from    address representing the previous owner of the given token ID
-   * @param tokenId uint256 ID of the token to be removed from the tokens list of the given address
+   * @param from       address representing the previous owner of the token
+   * @param tokenIndex index of the token in the tokens list of (@code from)
    */
-  private void _removeTokenFromOwnerEnumeration(Contract from, UnsignedBigInteger tokenId) {
+  private void _removeTokenFromOwnerEnumeration(Contract from, int tokenIndex) {
     // To prevent a gap in from's tokens array, we store the last token in the index of the token to delete, and
     // then delete the last slot (swap and pop).
 
-    UnsignedBigInteger lastTokenIndex = balanceOf(from).subtract(ONE);
-    UnsignedBigInteger tokenIndex = ownedTokensIndex.getOrDefault(tokenId, ZERO);
+    UnsignedBigInteger first = ownerKeys.get(from);
+    int lastTokenIndex = sizeOf(ownedTokens, first) - 1;
 
     // When the token to delete is the last token, the swap operation is unnecessary
-    if (!tokenIndex.equals(lastTokenIndex)) {
-      UnsignedBigInteger lastTokenId = ownedTokens.getOrDefault(from, StorageTreeMap::new).getOrDefault(lastTokenIndex, ZERO);
+    if (tokenIndex != lastTokenIndex) {
+      UnsignedBigInteger lastTokenId = ownedTokens.get(keyOf(first, lastTokenIndex));
 
-      ownedTokens.putIfAbsent(from, new StorageTreeMap<>());
-      ownedTokens.get(from).put(tokenIndex, lastTokenId); // Move the last token to the slot of the to-delete token
+      ownedTokens.put(keyOf(first, tokenIndex), lastTokenId); // Move the last token to the slot of the to-delete token
 
-      ownedTokensIndex.put(lastTokenId, tokenIndex); // Update the moved token's index
+      Position moved = positions.get(lastTokenId);
+      positions.put(lastTokenId, new Position(tokenIndex, moved.global)); // Update the moved token's index
     }
 
-    // This also deletes the contents at the last position of the array
-    ownedTokensIndex.remove(tokenId);
-    ownedTokens.getOrDefault(from, StorageTreeMap::new).remove(lastTokenIndex);
+    // This deletes the contents at the last position of the array
+    ownedTokens.remove(keyOf(first, lastTokenIndex));
   }
 
   /**
    * Private function to remove a token from this extension's token tracking data structures.
+   * The position of the removed token is left to the caller, that deletes it.
    * This has O(1) time complexity, but alters the order of the _allTokens array.
    *
-   * @param tokenId uint256 ID of the token to be removed from the tokens list
+   * @param tokenIndex index of the token in the allTokens array
    */
-  private void _removeTokenFromAllTokensEnumeration(UnsignedBigInteger tokenId) {
+  private void _removeTokenFromAllTokensEnumeration(int tokenIndex) {
     // To prevent a gap in the tokens array, we store the last token in the index of the token to delete, and
     // then delete the last slot (swap and pop).
 
-    UnsignedBigInteger lastTokenIndex = UnsignedBigInteger.valueOf(allTokens.size() - 1);
-    UnsignedBigInteger tokenIndex = allTokensIndex.getOrDefault(tokenId, (UnsignedBigInteger) null);
+    int lastTokenIndex = allTokensCount - 1;
+
+    // When the token to delete is the last token, the swap operation is unnecessary
+    if (tokenIndex != lastTokenIndex) {
+      UnsignedBigInteger lastTokenId = tokenAt(allTokens, firstImplicitTokenId, lastTokenIndex);
 
-    Takamaka.require(tokenIndex != null, "ERC721Enumerable: Token not exists.");
+      allTokens.put(tokenIndex, lastTokenId); // Move the last token to the slot of the to-delete token
 
-    // When the token to delete is the last token, the swap operation is unnecessary. However, since this occurs so
-    // rarely (when the last minted token is burnt) that we still do the swap here to avoid the gas cost of adding
-    // an 'if' statement (like in _removeTokenFromOwnerEnumeration)
-    UnsignedBigInteger lastTokenId = allTokens.get(lastTokenIndex.toBigInteger().intValue());
+      Position moved = positions.get(lastTokenId);
+      positions.put(lastTokenId, new Position(moved.owned, tokenIndex)); // Update the moved token's index
+    }
 
-    allTokens.remove(lastTokenId);
-    allTokensIndex.put(lastTokenId, tokenIndex); // Update the moved token's index
+    // This deletes the contents at the last position of the array
+    allTokens.remove(lastTokenIndex);
+    if (lastTokenIndex < implicitTokens) {
+      implicitTokens = lastTokenIndex;
+    }
 
-    // This also deletes the contents at the last position of the array
-    allTokens.remove(allTokensIndex.get(tokenId));
-    allTokensIndex.remove(tokenId);
+    allTokensCount--;
   }
 
-  @Exported
-  protected class ERC721EnumerableSnapshot extends ERC721Snapshot implements IERC721EnumerableView {
-    private final StorageMapView<Contract, StorageMap<UnsignedBigInteger, UnsignedBigInteger>> ownedTokens =
-      ERC721Enumerable.this.ownedTokens;
+  /**
+   * Removes the tokens at (@code indexes) from the tokens list of (@code from), as a swap and pop
+   * of each of them in order would, but writing each slot at most once.
+   * The positions of the removed tokens are left to the caller, that deletes them.
+   *
+   * @param indexes the distinct indexes of the tokens to remove, in order of removal
+   */
+  private void _removeTokensFromOwnerEnumeration(Contract from, int[] indexes) {
+    UnsignedBigInteger first = ownerKeys.get(from);
+    int size = sizeOf(ownedTokens, first);
+    int newSize = size - indexes.length;
+
+    if (newSize > 0) {
+      boolean[] removedFromTail = tailMask(indexes, newSize);
+      UnsignedBigInteger[] tail = new UnsignedBigInteger[indexes.length];
+      for (int i = 0; i < tail.length; i++) {
+        if (!removedFromTail[i]) {
+          tail[i] = ownedTokens.get(keyOf(first, newSize + i));
+        }
+      }
+
+      UnsignedBigInteger[] fillers = swapAndPopAll(newSize, indexes, tail);
+      for (int i = 0; i < indexes.length; i++) {
+        UnsignedBigInteger movedTokenId = fillers[i];
+        if (movedTokenId != null) {
+          ownedTokens.put(keyOf(first, indexes[i]), movedTokenId);
+
+          Position moved = positions.get(movedTokenId);
+          positions.put(movedTokenId, new Position(indexes[i], moved.global));
+        }
+      }
+    }
+
+    for (int index = newSize; index < size; index++) {
+      ownedTokens.remove(keyOf(first, index));
+    }
+  }
+
+  /**
+   * Removes the tokens at (@code indexes) from the allTokens array, as a swap and pop
+   * of each of them in order would, but writing each slot at most once.
+   * The positions of the removed tokens are left to the caller, that deletes them.
+   *
+   * @param indexes the distinct indexes of the tokens to remove, in order of removal
+   */
+  private void _removeTokensFromAllTokensEnumeration(int[] indexes) {
+    int count = allTokensCount;
+    int newCount = count - indexes.length;
+
+    boolean[] removedFromTail = tailMask(indexes, newCount);
+    UnsignedBigInteger[] tail = new UnsignedBigInteger[indexes.length];
+    for (int i = 0; i < tail.length; i++) {
+      if (!removedFromTail[i]) {
+        tail[i] = tokenAt(allTokens, firstImplicitTokenId, newCount + i);
+      }
+    }
+
+    UnsignedBigInteger[] fillers = swapAndPopAll(newCount, indexes, tail);
+    for (int i = 0; i < indexes.length; i++) {
+      UnsignedBigInteger movedTokenId = fillers[i];
+      if (movedTokenId != null) {
+        allTokens.put(indexes[i], movedTokenId);
+
+        Position moved = positions.get(movedTokenId);
+        positions.put(movedTokenId, new Position(moved.owned, indexes[i]));
+      }
+    }
+
+    // This deletes the contents of the tail of the array
+    for (int index = newCount; index < count; index++) {
+      allTokens.remove(index);
+    }
+
+    if (newCount < implicitTokens) {
+      implicitTokens = newCount;
+    }
+
+    allTokensCount = newCount;
+  }
 
-    // Mapping from token ID to index of the owner tokens list
-    private final StorageMapView<UnsignedBigInteger, UnsignedBigInteger> ownedTokensIndex =
-      ERC721Enumerable.this.ownedTokensIndex;
+  /**
+   * Yields which slots of the tail of a list, starting at (@code newSize), hold a token
+   * that is being removed.
+   */
+  private static boolean[] tailMask(int[] indexes, int newSize) {
+    boolean[] mask = new boolean[indexes.length];
+    for (int index : indexes) {
+      if (index >= newSize) {
+        mask[index - newSize] = true;
+      }
+    }
+
+    return mask;
+  }
+
+  /**
+   * Replays in memory the swap and pop of the tokens at (@code indexes), in order, on a list that
+   * shrinks to (@code newSize). Only the tail of the list and the slots of the removed tokens are
+   * involved: the former supplies the moved tokens, the latter receive them.
+   *
+   * @param indexes the distinct indexes of the tokens to remove, in order of removal
+   * @param tail the tokens of the list from (@code newSize) on; the slots of removed tokens are not read
+   * @return the token that ends up at each of (@code indexes), or null if the index lies in the tail
+   */
+  private static UnsignedBigInteger[] swapAndPopAll(int newSize, int[] indexes, UnsignedBigInteger[] tail) {
+    int count = indexes.length;
+
+    // Cell i < count stands for the slot newSize + i of the tail; cell count + j stands
+    // for the slot of the j-th removed token, if it lies before the tail
+    UnsignedBigInteger[] cells = new UnsignedBigInteger[2 * count];
+    int[] removedIn = new int[2 * count];
+    int[] cellOf = new int[count];
+
+    for (int cell = 0; cell < 2 * count; cell++) {
+      cells[cell] = cell < count ? tail[cell] : null;
+      removedIn[cell] = -1;
+    }
+
+    for (int j = 0; j < count; j++) {
+      cellOf[j] = indexes[j] >= newSize ? indexes[j] - newSize : count + j;
+      removedIn[cellOf[j]] = j;
+    }
+
+    // The j-th removal pops the slot newSize + count - 1 - j, that is always in the tail
+    for (int j = 0; j < count; j++) {
+      int last = count - 1 - j;
+      int cell = cellOf[j];
+
+      if (cell != last) {
+        cells[cell] = cells[last];
+        removedIn[cell] = removedIn[last];
+        if (removedIn[cell] >= 0) {
+          cellOf[removedIn[cell]] = cell;
+        }
+      }
+    }
+
+    UnsignedBigInteger[] fillers = new UnsignedBigInteger[count];
+    for (int j = 0; j < count; j++) {
+      if (indexes[j] < newSize) {
+        fillers[j] = cells[count + j];
+      }
+    }
+
+    return fillers;
+  }
 
-    // Array with all token ids, used for enumeration
-    private final StorageMapView<UnsignedBigInteger, UnsignedBigInteger> allTokens = ERC721Enumerable.this.allTokens;
+  @Exported
+  protected class ERC721EnumerableSnapshot extends ERC721Snapshot implements IERC721EnumerableView {
+    // The flattened lists of owned token IDs and the first key of each owner; both are shared with
+    // the live maps, since their values are immutable
+    private final StorageMapView<UnsignedBigInteger, UnsignedBigInteger> ownedTokens = ERC721Enumerable.this.ownedTokens.snapshot();
+    private final StorageMapView<Contract, UnsignedBigInteger> ownerKeys = ERC721Enumerable.this.ownerKeys.snapshot();
 
-    // Mapping from token id to position in the allTokens array
-    private final StorageMapView<UnsignedBigInteger, UnsignedBigInteger> allTokensIndex =
-      ERC721Enumerable.this.allTokensIndex;
+    // Array with all token ids, used for enumeration, with its implicit prefix
+    private final StorageIntMapView<UnsignedBigInteger> allTokens = ERC721Enumerable.this.allTokens.snapshot();
+    private final UnsignedBigInteger firstImplicitTokenId = ERC721Enumerable.this.firstImplicitTokenId;
+    private final int allTokensCount = ERC721Enumerable.this.allTokensCount;
 
-    @Override
+    @Override @View
     public UnsignedBigInteger totalSupply() {
-      return UnsignedBigInteger.valueOf(allTokens.size());
+      return UnsignedBigInteger.valueOf(allTokensCount);
     }
 
-    @Override
+    @Override @View
     public UnsignedBigInteger tokenOfOwnerByIndex(Contract owner, UnsignedBigInteger index) {
       Takamaka.require(index.compareTo(balanceOf(owner)) < 0, "ERC721Enumerable: owner index out of bounds");
 
-      return ownedTokens.getOrDefault(owner, StorageTreeMap::new).getOrDefault(index, (UnsignedBigInteger) null);
+      return ownedTokens.get(ownerKeys.get(owner).add(index));
     }
 
-    @Override
+    @Override @View
     public UnsignedBigInteger tokenByIndex(UnsignedBigInteger index) {
-      return allTokens.get(index.toBigInteger().intValue());
+      Takamaka.require(index.compareTo(totalSupply()) < 0, "ERC721Enumerable: global index out of bounds");
+
+      return tokenAt(allTokens, firstImplicitTokenId, index.toBigInteger().intValue());
+    }
+
+    @Override @View
+    public StorageArrayView<UnsignedBigInteger> tokensOfOwner(Contract owner, int offset, int limit) {
+      return page(ownedTokens, ownerKeys.get(owner), offset, limit);
+    }
+
+    @Override @View
+    public StorageArrayView<UnsignedBigInteger> tokensByRange(int offset, int limit) {
+      return page(allTokens, firstImplicitTokenId, allTokensCount, offset, limit);
     }
 
     @Override @View
@@ -0,0 +1,40 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.extensions;
+
+import io.nfteam.nftlab.hotmoka.erc721_customized.ERC721;
+import io.nfteam.nftlab.hotmoka.erc721_customized.EventPolicy;
+import io.nfteam.nftlab.hotmoka.erc721_customized.ledger.IntKeyedTokenLedger;
+import io.takamaka.code.math.UnsignedBigInteger;
+
+/**
+ * An ERC721 that keys its per-token state by a primitive (@code int) rather than by
+ * (@link UnsignedBigInteger), so that lookups compare primitive values and entries do not
+ * serialize a big integer key. Token identifiers are still (@link UnsignedBigInteger) at the
+ * (@link io.nfteam.nftlab.hotmoka.erc721_customized.IERC721) boundary, but they must fit in a non-negative (@code int).
+ *
+ * It is an ERC721 over an (@link IntKeyedTokenLedger); other extensions select that ledger
+ * through their constructors instead.
+ */
+abstract public class ERC721IntKeyed extends ERC721 {
+
+  public ERC721IntKeyed(String name, String symbol) {
+    this(name, symbol, EventPolicy.NONE);
+  }
+
+  public ERC721IntKeyed(String name, String symbol, boolean generateEvents) {
+    this(name, symbol, generateEvents ? EventPolicy.ALL : EventPolicy.NONE);
+  }
+
+  public ERC721IntKeyed(String name, String symbol, EventPolicy eventPolicy) {
+    super(name, symbol, eventPolicy, new IntKeyedTokenLedger());
+  }
+
+  /**
+   * Yields the primitive key of (@code tokenId).
+   *
+   * Requirements:
+   * - (@code tokenId) must fit in a non-negative (@code int).
+   */
+  protected static int key(UnsignedBigInteger tokenId) {
+    return IntKeyedTokenLedger.key(tokenId);
+  }
+}
@@ -0,0 +1,149 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.extensions;
+
+import io.nfteam.nftlab.hotmoka.erc721_customized.ERC721;
+import io.nfteam.nftlab.hotmoka.erc721_customized.EventPolicy;
+import io.takamaka.code.lang.*;
+import io.takamaka.code.math.UnsignedBigInteger;
+import io.takamaka.code.util.StorageArrayView;
+
+/**
+ * A shard of an (@link ERC721Sharded) collection: a complete ERC721 ledger for the tokens
+ * routed to it, that only accepts modifications from its collection. The collection passes
+ * the account that acts, since the caller of the shard is always the collection itself.
+ * Events are generated by the collection, hence the shard generates none.
+ */
+public final class ERC721Shard extends ERC721 {
+  private final Contract collection;
+
+  @FromContract
+  public ERC721Shard(String name, String symbol) {
+    super(name, symbol, EventPolicy.NONE);
+
+    this.collection = caller();
+  }
+
+  // ============ Collection entry points ============
+
+  @FromContract
+  public void transferOnBehalf(Contract spender, Contract from, Contract to, UnsignedBigInteger tokenId) {
+    _onlyCollection(caller());
+    _transferFrom(spender, from, to, tokenId);
+  }
+
+  @FromContract
+  public void batchTransferOnBehalf(Contract spender, Contract from, Contract to, UnsignedBigInteger[] tokenIds) {
+    _onlyCollection(caller());
+    _batchTransferFrom(spender, from, to, tokenIds);
+  }
+
+  /**
+   * @return the owner of (@code tokenId)
+   */
+  @FromContract
+  public Contract approveOnBehalf(Contract to, UnsignedBigInteger tokenId) {
+    _onlyCollection(caller());
+
+    Contract owner = ownerOf(tokenId);
+    _approve(owner, to, tokenId);
+
+    return owner;
+  }
+
+  @FromContract
+  public void setApprovalForAllOnBehalf(Contract owner, Contract operator, boolean approved) {
+    _onlyCollection(caller());
+    _setApprovalForAll(owner, operator, approved);
+  }
+
+  @FromContract
+  public void revokeAllOperatorsOnBehalf(Contract owner) {
+    _onlyCollection(caller());
+    _revokeAllOperators(owner);
+  }
+
+  @FromContract
+  public void mintOnBehalf(Contract to, UnsignedBigInteger tokenId) {
+    _onlyCollection(caller());
+    _mint(to, tokenId);
+  }
+
+  @FromContract
+  public void mintBatchOnBehalf(Contract to, UnsignedBigInteger[] tokenIds) {
+    _onlyCollection(caller());
+    _mintBatch(to, tokenIds);
+  }
+
+  /**
+   * @return the owner of (@code tokenId) before the burn
+   */
+  @FromContract
+  public Contract burnOnBehalf(UnsignedBigInteger tokenId) {
+    _onlyCollection(caller());
+
+    Contract owner = ownerOf(tokenId);
+    _burn(owner, _getApproved(tokenId), tokenId);
+
+    return owner;
+  }
+
+  /**
+   * Yields the owner of (@code tokenId), or null if the token does not exist.
+   */
+  @View
+  public Contract ownerOrNull(UnsignedBigInteger tokenId) {
+    return _ownerOf(tokenId);
+  }
+
+  /**
+   * Yields the account approved for (@code tokenId), or null if there is none.
+   */
+  @View
+  public Contract approvedOrNull(UnsignedBigInteger tokenId) {
+    return _getApproved(tokenId);
+  }
+
+  private void _onlyCollection(Contract caller) {
+    Takamaka.require(caller == collection, "ERC721Shard: only the collection can modify its shards");
+  }
+
+  // ============ Direct calls, rejected ============
+
+  @Override @FromContract
+  public void safeTransferFrom(Contract from, Contract to, UnsignedBigInteger tokenId) {
+    _rejectDirectCall();
+  }
+
+  @Override @FromContract
+  public void transferFrom(Contract from, Contract to, UnsignedBigInteger tokenId) {
+    _rejectDirectCall();
+  }
+
+  @Override @FromContract
+  public void safeTransferFrom(Contract from, Contract to, UnsignedBigInteger tokenId, byte[] data) {
+    _rejectDirectCall();
+  }
+
+  @Override @FromContract
+  public void batchTransferFrom(Contract from, Contract to, StorageArrayView<UnsignedBigInteger> tokenIds) {
+    _rejectDirectCall();
+  }
+
+  @Override @FromContract
+  public void approve(Contract to, UnsignedBigInteger tokenId) {
+    _rejectDirectCall();
+  }
+
+  @Override @FromContract
+  public void setApprovalForAll(Contract operator, boolean _approved) {
+    _rejectDirectCall();
+  }
+
+  @Override @FromContract
+  public void revokeAllOperators() {
+    _rejectDirectCall();
+  }
+
+  private static void _rejectDirectCall() {
+    Takamaka.require(false, "ERC721Shard: tokens are managed through their collection");
+  }
+}
@@ -0,0 +1,506 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.extensions;
+
+import io.nfteam.nftlab.hotmoka.erc721_customized.ERC721;
+import io.nfteam.nftlab.hotmoka.erc721_customized.EventPolicy;
+import io.nfteam.nftlab.hotmoka.erc721_customized.IERC721Metadata;
+import io.nfteam.nftlab.hotmoka.erc721_customized.IERC721Receiver;
+import io.nfteam.nftlab.hotmoka.erc721_customized.IERC721View;
+import io.nfteam.nftlab.hotmoka.erc721_customized.internal.ERC721Support;
+import io.takamaka.code.lang.*;
+import io.takamaka.code.math.UnsignedBigInteger;
+import io.takamaka.code.util.*;
+
+import java.math.BigInteger;
+
+/**
+ * An ERC721 collection whose tokens are spread over a fixed number of (@link ERC721Shard)s.
+ * Each token lives in the shard chosen by (@link #_shardOf(UnsignedBigInteger)), that keeps
+ * its owner, its approval and the balances of its owners, so that the maps of each shard hold
+ * only a fraction of the collection and operations on tokens of distinct shards touch disjoint state.
+ *
+ * The balance of an owner is the sum of its balances in all shards. Operators are approved
+ * for the whole collection, hence they are written into every shard. Events are generated
+ * by this collection, as for a single (@code ERC721).
+ */
+abstract public class ERC721Sharded extends Contract implements IERC721Metadata {
+  private final String name;
+  private final String symbol;
+  private final EventPolicy eventPolicy;
+  private final StorageArray<ERC721Shard> shards;
+
+  // The receivers that accept every token, hence are not called anymore
+  private final StorageSet<Contract> acceptingReceivers = new StorageTreeSet<>();
+
+  public ERC721Sharded(String name, String symbol, int numberOfShards) {
+    this(name, symbol, numberOfShards, EventPolicy.NONE);
+  }
+
+  public ERC721Sharded(String name, String symbol, int numberOfShards, boolean generateEvents) {
+    this(name, symbol, numberOfShards, generateEvents ? EventPolicy.ALL : EventPolicy.NONE);
+  }
+
+  public ERC721Sharded(String name, String symbol, int numberOfShards, EventPolicy eventPolicy) {
+    Takamaka.require(numberOfShards > 0, "ERC721Sharded: at least a shard is needed");
+
+    this.name = name;
+    this.symbol = symbol;
+    this.eventPolicy = eventPolicy;
+    this.shards = new StorageTreeArray<>(numberOfShards);
+
+    for (int i = 0; i < numberOfShards; i++) {
+      shards.set(i, new ERC721Shard(name, symbol));
+    }
+  }
+
+  // ============ Getters ============
+
+  @Override @View
+  public final String name() {
+    return name;
+  }
+
+  @Override @View
+  public final String symbol() {
+    return symbol;
+  }
+
+  @View
+  public final int numberOfShards() {
+    return shards.length();
+  }
+
+  /**
+   * Yields the index of the shard that holds (@code tokenId). It must only depend on the token id
+   * and on the number of shards. By default, tokens are spread by their id modulo the number of shards,
+   * so that sequential ids are balanced; subclasses can route by id range instead.
+   */
+  @View
+  protected int _shardOf(UnsignedBigInteger tokenId) {
+    return tokenId.toBigInteger().mod(BigInteger.valueOf(shards.length())).intValue();
+  }
+
+  private ERC721Shard shardOf(UnsignedBigInteger tokenId) {
+    return shards.get(_shardOf(tokenId));
+  }
+
+  // ============ Transfer ============
+
+  @Override @FromContract
+  public void safeTransferFrom(Contract from, Contract to, UnsignedBigInteger tokenId) {
+    _safeTransferFrom(caller(), from, to, tokenId, null);
+  }
+
+  @Override @FromContract
+  public void transferFrom(Contract from, Contract to, UnsignedBigInteger tokenId) {
+    _transferFrom(caller(), from, to, tokenId);
+  }
+
+  @Override @FromContract
+  public void safeTransferFrom(Contract from, Contract to, UnsignedBigInteger tokenId, byte[] data) {
+    _safeTransferFrom(caller(), from, to, tokenId, data);
+  }
+
+  private void _safeTransferFrom(Contract spender, Contract from, Contract to, UnsignedBigInteger tokenId, byte[] data) {
+    _transferFrom(spender, from, to, tokenId);
+
+    Takamaka.require(
+      _checkOnERC721Received(spender, from, to, tokenId, data),
+      "ERC721: transfer to non ERC721Receiver implementer"
+    );
+  }
+
+  /**
+   * Checks that (@code to) accepts (@code tokenId), with the rules of (@link ERC721Support#knownAcceptance)
+   * for the receivers that are not called. The receiver is called by this collection, not by the shard of the token.
+   */
+  protected boolean _checkOnERC721Received(Contract operator, Contract from, Contract to, UnsignedBigInteger tokenId, byte[] data) {
+    IERC721Receiver.Acceptance acceptance = ERC721Support.knownAcceptance(to, acceptingReceivers);
+
+    if (acceptance == null) {
+      acceptance = ((IERC721Receiver) to).onERC721Received(operator, from, tokenId, data != null ? data : new byte[0]);
+
+      if (acceptance == IERC721Receiver.Acceptance.ACCEPTED_ALWAYS) {
+        acceptingReceivers.add(to);
+      }
+    }
+
+    return acceptance != null && acceptance != IERC721Receiver.Acceptance.REJECTED;
+  }
+
+  private void _transferFrom(Contract spender, Contract from, Contract to, UnsignedBigInteger tokenId) {
+    ERC721Shard shard = shardOf(tokenId);
+    Contract approved = eventPolicy.approvalClears() ? shard.approvedOrNull(tokenId) : null;
+
+    shard.transferOnBehalf(spender, from, to, tokenId);
+
+    if (approved != null) {
+      Takamaka.event(new Approval(from, null, tokenId));
+    }
+    if (eventPolicy.transfers()) {
+      Takamaka.event(new Transfer(from, to, tokenId));
+    }
+  }
+
+  @Override @FromContract
+  public void batchTransferFrom(Contract from, Contract to, StorageArrayView<UnsignedBigInteger> tokenIdsView) {
+    Contract spender = caller();
+    UnsignedBigInteger[] tokenIds = ERC721Support.toArray(tokenIdsView);
+
+    if (eventPolicy.approvalClears()) {
+      for (UnsignedBigInteger tokenId : tokenIds) {
+        if (shardOf(tokenId).approvedOrNull(tokenId) != null) {
+          Takamaka.event(new Approval(from, null, tokenId));
+        }
+      }
+    }
+
+    UnsignedBigInteger[][] tokenIdsByShard = byShard(tokenIds);
+    for (int i = 0; i < tokenIdsByShard.length; i++) {
+      if (tokenIdsByShard[i].length > 0) {
+        shards.get(i).batchTransferOnBehalf(spender, from, to, tokenIdsByShard[i]);
+      }
+    }
+
+    if (eventPolicy.transfers()) {
+      Takamaka.event(new TransferBatch(from, to, tokenIds));
+    }
+  }
+
+  /**
+   * Splits (@code tokenIds) by shard, keeping their order.
+   */
+  private UnsignedBigInteger[][] byShard(UnsignedBigInteger[] tokenIds) {
+    int numberOfShards = shards.length();
+    int[] indexes = new int[tokenIds.length];
+    int[] sizes = new int[numberOfShards];
+    for (int i = 0; i < tokenIds.length; i++) {
+      indexes[i] = _shardOf(tokenIds[i]);
+      sizes[indexes[i]]++;
+    }
+
+    UnsignedBigInteger[][] result = new UnsignedBigInteger[numberOfShards][];
+    for (int i = 0; i < numberOfShards; i++) {
+      result[i] = new UnsignedBigInteger[sizes[i]];
+      sizes[i] = 0;
+    }
+
+    for (int i = 0; i < tokenIds.length; i++) {
+      result[indexes[i]][sizes[indexes[i]]++] = tokenIds[i];
+    }
+
+    return result;
+  }
+
+  private static StorageArrayView<UnsignedBigInteger> toStorageArray(UnsignedBigInteger[] tokenIds) {
+    StorageArray<UnsignedBigInteger> result = new StorageTreeArray<>(tokenIds.length);
+    for (int i = 0; i < tokenIds.length; i++) {
+      result.set(i, tokenIds[i]);
+    }
+
+    return result.snapshot();
+  }
+
+  // ============ Approvals ============
+
+  @Override @FromContract
+  public void approve(Contract to, UnsignedBigInteger tokenId) {
+    ERC721Shard shard = shardOf(tokenId);
+
+    // The shard does not rewrite an unchanged approval, hence nothing is emitted for it either
+    Contract approved = shard.approvedOrNull(tokenId);
+    boolean changed = to == null ? approved != null : !to.equals(approved);
+    Contract owner = shard.approveOnBehalf(to, tokenId);
+
+    if (changed && eventPolicy.approvals()) {
+      Takamaka.event(new Approval(owner, to, tokenId));
+    }
+  }
+
+  @Override @FromContract
+  public void setApprovalForAll(Contract operator, boolean _approved) {
+    Contract owner = caller();
+
+    for (int i = 0; i < shards.length(); i++) {
+      shards.get(i).setApprovalForAllOnBehalf(owner, operator, _approved);
+    }
+
+    if (eventPolicy.approvals()) {
+      Takamaka.event(new ApprovalForAll(owner, operator, _approved));
+    }
+  }
+
+  @Override @FromContract
+  public void revokeAllOperators() {
+    Contract owner = caller();
+
+    for (int i = 0; i < shards.length(); i++) {
+      shards.get(i).revokeAllOperatorsOnBehalf(owner);
+    }
+
+    if (eventPolicy.approvals()) {
+      Takamaka.event(new AllOperatorsRevoked(owner));
+    }
+  }
+
+  @Override @View
+  public Contract getApproved(UnsignedBigInteger tokenId) {
+    return shardOf(tokenId).getApproved(tokenId);
+  }
+
+  @Override @View
+  public boolean isApprovedForAll(Contract owner, Contract operator) {
+    // Operators are the same in every shard
+    return shards.get(0).isApprovedForAll(owner, operator);
+  }
+
+  // ============ MINT ============
+
+  protected void _safeMint(Contract to, UnsignedBigInteger tokenId) {
+    _safeMint(to, tokenId, null);
+  }
+
+  /**
+   * Mints (@code tokenId) like (@link #_mint(Contract, UnsignedBigInteger)), checking that (@code to) accepts it.
+   *
+   * @param data the data passed to the receiver; null stands for no data
+   */
+  protected void _safeMint(Contract to, UnsignedBigInteger tokenId, byte[] data) {
+    _mint(to, tokenId);
+
+    Takamaka.require(
+      _checkOnERC721Received(null, null, to, tokenId, data),
+      "ERC721: transfer to non ERC721Receiver implementer"
+    );
+  }
+
+  protected void _mint(Contract to, UnsignedBigInteger tokenId) {
+    shardOf(tokenId).mintOnBehalf(to, tokenId);
+
+    if (eventPolicy.transfers()) {
+      Takamaka.event(new Transfer(null, to, tokenId));
+    }
+  }
+
+  /**
+   * Mints every token in (@code tokenIds) and transfers them to (@code to),
+   * with a single batch for each shard.
+   *
+   * Emits a single (@link IERC721.TransferBatch) event.
+   */
+  protected void _mintBatch(Contract to, UnsignedBigInteger[] tokenIds) {
+    UnsignedBigInteger[][] tokenIdsByShard = byShard(tokenIds);
+    for (int i = 0; i < tokenIdsByShard.length; i++) {
+      if (tokenIdsByShard[i].length > 0) {
+        shards.get(i).mintBatchOnBehalf(to, tokenIdsByShard[i]);
+      }
+    }
+
+    if (eventPolicy.transfers()) {
+      Takamaka.event(new TransferBatch(null, to, tokenIds));
+    }
+  }
+
+  // ============ Burn ============
+
+  protected void _burn(UnsignedBigInteger tokenId) {
+    ERC721Shard shard = shardOf(tokenId);
+    Contract approved = eventPolicy.approvalClears() ? shard.approvedOrNull(tokenId) : null;
+
+    Contract owner = shard.burnOnBehalf(tokenId);
+
+    if (approved != null) {
+      Takamaka.event(new Approval(owner, null, tokenId));
+    }
+    if (eventPolicy.transfers()) {
+      Takamaka.event(new Transfer(owner, null, tokenId));
+    }
+  }
+
+  // ============ Token URI ============
+
+  @Override @View
+  public String tokenURI(UnsignedBigInteger tokenId) {
+    Takamaka.require(_exists(tokenId), "ERC721Metadata: URI query for nonexistent token");
+
+    return ERC721Support.tokenURIOf(_baseURI(), tokenId);
+  }
+
+  @Override @View
+  public StorageArrayView<String> tokenURIBatch(StorageArrayView<UnsignedBigInteger> tokenIds) {
+    StorageArray<String> uris = new StorageTreeArray<>(tokenIds.length());
+    for (int i = 0; i < tokenIds.length(); i++) {
+      UnsignedBigInteger tokenId = tokenIds.get(i);
+      if (_exists(tokenId)) {
+        uris.set(i, tokenURI(tokenId));
+      }
+    }
+
+    return uris.snapshot();
+  }
+
+  @View
+  protected String _baseURI() {
+    return "";
+  }
+
+  // ============ Balance of ============
+
+  @Override @View
+  public UnsignedBigInteger balanceOf(Contract owner) {
+    Takamaka.require(owner != null, "ERC721: balance query for the zero address");
+
+    UnsignedBigInteger balance = shards.get(0).balanceOf(owner);
+    for (int i = 1; i < shards.length(); i++) {
+      balance = balance.add(shards.get(i).balanceOf(owner));
+    }
+
+    return balance;
+  }
+
+  @Override @View
+  public StorageArrayView<UnsignedBigInteger> balanceOfBatch(StorageArrayView<Contract> owners) {
+    StorageArray<UnsignedBigInteger> result = new StorageTreeArray<>(owners.length());
+    for (int i = 0; i < owners.length(); i++) {
+      Contract owner = owners.get(i);
+      if (owner != null) {
+        result.set(i, balanceOf(owner));
+      }
+    }
+
+    return result.snapshot();
+  }
+
+  // ============ Owner of ============
+
+  @Override @View
+  public Contract ownerOf(UnsignedBigInteger tokenId) {
+    return shardOf(tokenId).ownerOf(tokenId);
+  }
+
+  @Override @View
+  public StorageArrayView<Contract> ownerOfBatch(StorageArrayView<UnsignedBigInteger> tokenIds) {
+    StorageArray<Contract> result = new StorageTreeArray<>(tokenIds.length());
+    for (int i = 0; i < tokenIds.length(); i++) {
+      UnsignedBigInteger tokenId = tokenIds.get(i);
+      result.set(i, shardOf(tokenId).ownerOrNull(tokenId));
+    }
+
+    return result.snapshot();
+  }
+
+  // ============ Exists ============
+
+  @View
+  protected final boolean _exists(UnsignedBigInteger tokenId) {
+    return shardOf(tokenId).ownerOrNull(tokenId) != null;
+  }
+
+  // ============ Snapshot ============
+
+  /**
+   * The sum of the versions of the shards, that grows at each modification of any of them.
+   */
+  @Override @View
+  public long version() {
+    long version = 0;
+    for (int i = 0; i < shards.length(); i++) {
+      version += shards.get(i).version();
+    }
+
+    return version;
+  }
+
+  @Exported
+  protected class ERC721ShardedSnapshot extends Storage implements IERC721View {
+    private final StorageArrayView<IERC721View> shards;
+    private final long version = ERC721Sharded.this.version();
+
+    protected ERC721ShardedSnapshot() {
+      StorageArray<IERC721View> snapshots = new StorageTreeArray<>(ERC721Sharded.this.shards.length());
+      for (int i = 0; i < snapshots.length(); i++) {
+        snapshots.set(i, ERC721Sharded.this.shards.get(i).snapshot());
+      }
+
+      this.shards = snapshots.snapshot();
+    }
+
+    private IERC721View shardOf(UnsignedBigInteger tokenId) {
+      return shards.get(_shardOf(tokenId));
+    }
+
+    @Override @View
+    public UnsignedBigInteger balanceOf(Contract owner) {
+      UnsignedBigInteger balance = shards.get(0).balanceOf(owner);
+      for (int i = 1; i < shards.length(); i++) {
+        balance = balance.add(shards.get(i).balanceOf(owner));
+      }
+
+      return balance;
+    }
+
+    @Override @View
+    public Contract ownerOf(UnsignedBigInteger tokenId) {
+      return shardOf(tokenId).ownerOf(tokenId);
+    }
+
+    @Override @View
+    public Contract getApproved(UnsignedBigInteger tokenId) {
+      return shardOf(tokenId).getApproved(tokenId);
+    }
+
+    @Override @View
+    public boolean isApprovedForAll(Contract owner, Contract operator) {
+      return shards.get(0).isApprovedForAll(owner, operator);
+    }
+
+    @Override @View
+    public StorageArrayView<UnsignedBigInteger> balanceOfBatch(StorageArrayView<Contract> owners) {
+      StorageArray<UnsignedBigInteger> result = new StorageTreeArray<>(owners.length());
+      for (int i = 0; i < owners.length(); i++) {
+        Contract owner = owners.get(i);
+        if (owner != null) {
+          result.set(i, balanceOf(owner));
+        }
+      }
+
+      return result.snapshot();
+    }
+
+    @Override @View
+    public StorageArrayView<Contract> ownerOfBatch(StorageArrayView<UnsignedBigInteger> tokenIds) {
+      // Each shard is only asked for its own tokens
+      UnsignedBigInteger[][] tokenIdsByShard = byShard(ERC721Support.toArray(tokenIds));
+      StorageArray<StorageArrayView<Contract>> owners = new StorageTreeArray<>(tokenIdsByShard.length);
+      for (int i = 0; i < tokenIdsByShard.length; i++) {
+        if (tokenIdsByShard[i].length > 0) {
+          owners.set(i, shards.get(i).ownerOfBatch(toStorageArray(tokenIdsByShard[i])));
+        }
+      }
+
+      // The owners of each shard come in the order of its tokens in (@code tokenIds)
+      int[] next = new int[tokenIdsByShard.length];
+      StorageArray<Contract> result = new StorageTreeArray<>(tokenIds.length());
+      for (int i = 0; i < tokenIds.length(); i++) {
+        int shard = _shardOf(tokenIds.get(i));
+        result.set(i, owners.get(shard).get(next[shard]++));
+      }
+
+      return result.snapshot();
+    }
+
+    @Override @View
+    public long version() {
+      return version;
+    }
+
+    @Override @View
+    public IERC721View snapshot() {
+      return this;
+    }
+  }
+
+  @Override @View
+  public IERC721View snapshot() {
+    return new ERC721ShardedSnapshot();
+  }
+}
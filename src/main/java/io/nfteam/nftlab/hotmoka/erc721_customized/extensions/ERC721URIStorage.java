@@ -1,15 +1,21 @@
 package io.nfteam.nftlab.hotmoka.erc721_customized.extensions;
 
 import io.nfteam.nftlab.hotmoka.erc721_customized.ERC721;
+import io.nfteam.nftlab.hotmoka.erc721_customized.EventPolicy;
+import io.nfteam.nftlab.hotmoka.erc721_customized.ledger.TokenLedger;
 import io.takamaka.code.lang.*;
 import io.takamaka.code.math.UnsignedBigInteger;
-import io.takamaka.code.util.StorageMap;
-import io.takamaka.code.util.StorageMapView;
-import io.takamaka.code.util.StorageTreeMap;
+import io.takamaka.code.util.*;
 
 abstract public class ERC721URIStorage extends ERC721 implements IERC721URIStorageView {
   private final StorageMap<UnsignedBigInteger, String> tokenURIs = new StorageTreeMap<>();
 
+  // True once the metadata has been frozen: from then on, URIs never change
+  private boolean frozen;
+
+  // The base URI at the time of the freeze, that serves the URIs from then on
+  private String frozenBaseURI;
+
   public ERC721URIStorage(String name, String symbol) {
     super(name, symbol);
   }
@@ -18,10 +24,22 @@ abstract public class ERC721URIStorage extends ERC721 implements IERC721URIStora
     super(name, symbol, generateEvents);
   }
 
+  public ERC721URIStorage(String name, String symbol, EventPolicy eventPolicy) {
+    super(name, symbol, eventPolicy);
+  }
+
+  public ERC721URIStorage(String name, String symbol, EventPolicy eventPolicy, TokenLedger ledger) {
+    super(name, symbol, eventPolicy, ledger);
+  }
+
   @View
   public String tokenURI(UnsignedBigInteger tokenId) {
     Takamaka.require(_exists(tokenId), "ERC721URIStorage: URI query for nonexistent token");
 
+    if (frozen) {
+      return frozenTokenURI(frozenBaseURI, tokenURIs.get(tokenId), tokenId);
+    }
+
     String tokenURI = tokenURIs.getOrDefault(tokenId, "");
     String base = _baseURI();
 
@@ -41,10 +59,86 @@ abstract public class ERC721URIStorage extends ERC721 implements IERC721URIStora
    * Requirements:
    *
    * - (@code tokenId) must exist.
+   *
+   * Emits a (@link MetadataUpdate) event, if the event policy of the token is (@link EventPolicy#ALL).
    */
   protected void _setTokenURI(UnsignedBigInteger tokenId, String tokenURI) {
+    Takamaka.require(!frozen, "ERC721URIStorage: metadata is frozen");
     Takamaka.require(_exists(tokenId), "ERC721URIStorage: URI set of nonexistent token");
     tokenURIs.put(tokenId, tokenURI);
+    _logTokenChange(tokenId);
+    _incrementVersion();
+
+    if (_eventPolicy().metadataUpdates()) {
+      event(new MetadataUpdate(tokenId));
+    }
+  }
+
+  /**
+   * Returns true if and only if the metadata of the collection has been frozen,
+   * see (@link #_freezeMetadata()).
+   */
+  @View
+  public boolean metadataFrozen() {
+    return frozen;
+  }
+
+  /**
+   * Freezes the metadata of the collection, for good: (@code _setTokenURI) is locked and
+   * the base URI is fixed to the current value of (@link #_baseURI()).
+   * The URIs that equal the base URI followed by the token id can then be dropped
+   * with (@link #_collapseTokenURIs(UnsignedBigInteger[])).
+   *
+   * The freeze is recorded in the change log as a change of this contract, as an account,
+   * since it concerns every token of the collection.
+   */
+  protected void _freezeMetadata() {
+    Takamaka.require(!frozen, "ERC721URIStorage: metadata is already frozen");
+
+    frozen = true;
+    frozenBaseURI = _baseURI();
+    _logAccountChange(this);
+    _incrementVersion();
+  }
+
+  /**
+   * Drops the stored URIs of (@code tokenIds) that are computed anyway from the frozen base URI,
+   * that is, those that are empty or, with a base URI, equal to the token id. The other tokens
+   * are left untouched, hence this can be called with any slice of the collection, in as many
+   * transactions as needed.
+   *
+   * Requirements:
+   *
+   * - the metadata must be frozen.
+   *
+   * @return the number of dropped URIs
+   */
+  protected int _collapseTokenURIs(UnsignedBigInteger[] tokenIds) {
+    Takamaka.require(frozen, "ERC721URIStorage: metadata is not frozen");
+
+    int collapsed = 0;
+    for (UnsignedBigInteger tokenId : tokenIds) {
+      String tokenURI = tokenURIs.get(tokenId);
+      if (tokenURI != null && (tokenURI.isEmpty() || (!frozenBaseURI.isEmpty() && tokenURI.equals(tokenId.toString())))) {
+        tokenURIs.remove(tokenId);
+        collapsed++;
+      }
+    }
+
+    return collapsed;
+  }
+
+  /**
+   * Computes the URI of (@code tokenId) once the metadata is frozen.
+   *
+   * @param tokenURI the stored URI of the token, or null if it has none
+   */
+  private static String frozenTokenURI(String base, String tokenURI, UnsignedBigInteger tokenId) {
+    if (tokenURI != null && !tokenURI.isEmpty()) {
+      return base + tokenURI;
+    }
+
+    return base.isEmpty() ? "" : base + tokenId.toString();
   }
 
   /**
@@ -57,19 +151,34 @@ abstract public class ERC721URIStorage extends ERC721 implements IERC721URIStora
    * Emits a (@link ERC721.Transfer) event.
    */
   @Override
-  protected void _burn(UnsignedBigInteger tokenId) {
-    super._burn(tokenId);
+  protected void _burn(Contract owner, Contract approved, UnsignedBigInteger tokenId) {
+    super._burn(owner, approved, tokenId);
 
     tokenURIs.remove(tokenId);
   }
 
+  @Override
+  protected void _burnBatch(Contract spender, UnsignedBigInteger[] tokenIds) {
+    super._burnBatch(spender, tokenIds);
+
+    for (UnsignedBigInteger tokenId : tokenIds) {
+      tokenURIs.remove(tokenId);
+    }
+  }
+
   @Exported
   protected class ERC721URIStorageSnapshot extends ERC721Snapshot implements IERC721URIStorageView {
-    private final StorageMapView<UnsignedBigInteger, String> tokenURIs = ERC721URIStorage.this.tokenURIs;
+    private final StorageMapView<UnsignedBigInteger, String> tokenURIs = ERC721URIStorage.this.tokenURIs.snapshot();
+    private final boolean frozen = ERC721URIStorage.this.frozen;
+    private final String frozenBaseURI = ERC721URIStorage.this.frozenBaseURI;
 
     @Override @View
     public String tokenURI(UnsignedBigInteger tokenId) {
-      Takamaka.require(_exists(tokenId), "ERC721URIStorage: URI query for nonexistent token");
+      Takamaka.require(_ownerOf(tokenId) != null, "ERC721URIStorage: URI query for nonexistent token");
+
+      if (frozen) {
+        return frozenTokenURI(frozenBaseURI, tokenURIs.get(tokenId), tokenId);
+      }
 
       String tokenURI = tokenURIs.getOrDefault(tokenId, "");
       String base = _baseURI();
@@ -84,6 +193,24 @@ abstract public class ERC721URIStorage extends ERC721 implements IERC721URIStora
       return _baseURI() + tokenId.toString();
     }
 
+    @View
+    public boolean metadataFrozen() {
+      return frozen;
+    }
+
+    @Override @View
+    public StorageArrayView<String> tokenURIBatch(StorageArrayView<UnsignedBigInteger> tokenIds) {
+      StorageArray<String> uris = new StorageTreeArray<>(tokenIds.length());
+      for (int i = 0; i < tokenIds.length(); i++) {
+        UnsignedBigInteger tokenId = tokenIds.get(i);
+        if (_ownerOf(tokenId) != null) {
+          uris.set(i, tokenURI(tokenId));
+        }
+      }
+
+      return uris.snapshot();
+    }
+
     @Override @View
     public IERC721URIStorageView snapshot() {
       return this;
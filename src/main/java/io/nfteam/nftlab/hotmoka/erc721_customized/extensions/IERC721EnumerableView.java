@@ -4,6 +4,7 @@ import io.nfteam.nftlab.hotmoka.erc721_customized.IERC721View;
 import io.takamaka.code.lang.Contract;
 import io.takamaka.code.lang.View;
 import io.takamaka.code.math.UnsignedBigInteger;
+import io.takamaka.code.util.StorageArrayView;
 
 public interface IERC721EnumerableView extends IERC721View {
   /**
@@ -26,6 +27,22 @@ public interface IERC721EnumerableView extends IERC721View {
   @View
   UnsignedBigInteger tokenByIndex(UnsignedBigInteger index);
 
+  /**
+   * Returns at most `limit` token IDs owned by `owner`, starting at `offset` of its token list.
+   * The result is shorter than `limit`, possibly empty, when the end of the list is reached.
+   * Use it instead of repeated calls to {tokenOfOwnerByIndex} to enumerate ``owner``'s tokens.
+   */
+  @View
+  StorageArrayView<UnsignedBigInteger> tokensOfOwner(Contract owner, int offset, int limit);
+
+  /**
+   * Returns at most `limit` token IDs stored by the contract, starting at global index `offset`.
+   * The result is shorter than `limit`, possibly empty, when the end of the tokens is reached.
+   * Use it instead of repeated calls to {tokenByIndex} to enumerate all tokens.
+   */
+  @View
+  StorageArrayView<UnsignedBigInteger> tokensByRange(int offset, int limit);
+
   @View
   IERC721EnumerableView snapshot();
 }
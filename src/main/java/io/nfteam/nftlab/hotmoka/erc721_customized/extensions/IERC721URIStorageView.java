@@ -3,11 +3,19 @@ package io.nfteam.nftlab.hotmoka.erc721_customized.extensions;
 import io.nfteam.nftlab.hotmoka.erc721_customized.IERC721View;
 import io.takamaka.code.lang.View;
 import io.takamaka.code.math.UnsignedBigInteger;
+import io.takamaka.code.util.StorageArrayView;
 
 public interface IERC721URIStorageView extends IERC721View {
   @View
   String tokenURI(UnsignedBigInteger tokenId);
 
+  /**
+   * Returns the URI of each of (@code tokenIds), in the same order.
+   * The entry of a nonexistent token is null.
+   */
+  @View
+  StorageArrayView<String> tokenURIBatch(StorageArrayView<UnsignedBigInteger> tokenIds);
+
   @Override
   @View
   IERC721URIStorageView snapshot();
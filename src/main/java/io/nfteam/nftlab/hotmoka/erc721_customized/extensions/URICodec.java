@@ -0,0 +1,121 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.extensions;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes a URI into a single (@code BigInteger), made of an interned prefix id and of a binary suffix.
+ * A (@code BigInteger) is an immutable value, hence it is stored inside the entry of the map that holds it,
+ * without the cost of a further storage object.
+ *
+ * The lowest 8 bits are the kind of the suffix, the next 16 bits the id of the prefix
+ * and the remaining ones the suffix:
+ * - (@code RAW): the UTF-8 bytes of the suffix;
+ * - (@code CID_V0): an IPFS CIDv0, such as (@code Qm...), as its raw 32 bytes sha2-256 digest,
+ *   followed by the UTF-8 bytes of what comes after it, such as a path.
+ *
+ * Byte strings are prefixed with a 1 byte, so that leading zeros survive the conversion to a number.
+ */
+final class URICodec {
+  static final int MAX_PREFIXES = 1 << 16;
+
+  private static final int RAW = 0;
+  private static final int CID_V0 = 1;
+
+  private static final String BASE58 = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz";
+  private static final BigInteger FIFTY_EIGHT = BigInteger.valueOf(58);
+  private static final int CID_V0_LENGTH = 46;
+
+  // The multihash header of a sha2-256 digest: function 0x12, length 0x20
+  private static final BigInteger SHA2_256 = BigInteger.valueOf(0x1220);
+  private static final BigInteger DIGEST_MASK = BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE);
+
+  private URICodec() {}
+
+  /**
+   * Encodes the suffix of a URI, that follows the prefix with the given id.
+   */
+  static BigInteger encode(int prefixId, String suffix) {
+    BigInteger digest = cidV0Digest(suffix);
+
+    BigInteger payload;
+    int kind;
+    if (digest != null) {
+      payload = bytes(suffix.substring(CID_V0_LENGTH)).shiftLeft(256).or(digest);
+      kind = CID_V0;
+    } else {
+      payload = bytes(suffix);
+      kind = RAW;
+    }
+
+    return payload.shiftLeft(24).or(BigInteger.valueOf(((long) prefixId << 8) | kind));
+  }
+
+  /**
+   * @return the id of the prefix of an encoded URI
+   */
+  static int prefixId(BigInteger code) {
+    return code.shiftRight(8).intValue() & (MAX_PREFIXES - 1);
+  }
+
+  /**
+   * @return the suffix of an encoded URI
+   */
+  static String suffix(BigInteger code) {
+    int kind = code.intValue() & 0xff;
+    BigInteger payload = code.shiftRight(24);
+
+    if (kind == CID_V0) {
+      return base58(SHA2_256.shiftLeft(256).or(payload.and(DIGEST_MASK))) + string(payload.shiftRight(256));
+    }
+
+    return string(payload);
+  }
+
+  /**
+   * Yields the sha2-256 digest of the CIDv0 at the beginning of (@code suffix), if any.
+   *
+   * @return the digest, or null if (@code suffix) does not start with a CIDv0
+   */
+  private static BigInteger cidV0Digest(String suffix) {
+    if (suffix.length() < CID_V0_LENGTH || !suffix.startsWith("Qm")) {
+      return null;
+    }
+
+    BigInteger value = BigInteger.ZERO;
+    for (int i = 0; i < CID_V0_LENGTH; i++) {
+      int digit = BASE58.indexOf(suffix.charAt(i));
+      if (digit < 0) {
+        return null;
+      }
+
+      value = value.multiply(FIFTY_EIGHT).add(BigInteger.valueOf(digit));
+    }
+
+    return value.shiftRight(256).equals(SHA2_256) ? value.and(DIGEST_MASK) : null;
+  }
+
+  private static String base58(BigInteger value) {
+    StringBuilder digits = new StringBuilder();
+    while (value.signum() > 0) {
+      BigInteger[] division = value.divideAndRemainder(FIFTY_EIGHT);
+      digits.append(BASE58.charAt(division[1].intValue()));
+      value = division[0];
+    }
+
+    return digits.reverse().toString();
+  }
+
+  private static BigInteger bytes(String s) {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+
+    return BigInteger.ONE.shiftLeft(8 * bytes.length).or(new BigInteger(1, bytes));
+  }
+
+  private static String string(BigInteger bytes) {
+    // Drop the leading 1 byte
+    byte[] withMarker = bytes.toByteArray();
+
+    return new String(withMarker, 1, withMarker.length - 1, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,58 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.internal;
+
+import io.nfteam.nftlab.hotmoka.erc721_customized.IERC721Receiver;
+import io.takamaka.code.lang.Contract;
+import io.takamaka.code.lang.ExternallyOwnedAccount;
+import io.takamaka.code.math.UnsignedBigInteger;
+import io.takamaka.code.util.StorageArrayView;
+import io.takamaka.code.util.StorageSetView;
+
+/**
+ * The rules that (@code ERC721) shares with the collections that do not extend it, such as
+ * (@code ERC721Sharded). They live in a package that the module does not export, so that they
+ * do not add to the public methods of the tokens.
+ */
+public final class ERC721Support {
+
+  private ERC721Support() {}
+
+  /**
+   * Copies the (@code tokenIds) received by a public entry point into the array taken by the batch operations.
+   */
+  public static UnsignedBigInteger[] toArray(StorageArrayView<UnsignedBigInteger> tokenIds) {
+    UnsignedBigInteger[] result = new UnsignedBigInteger[tokenIds.length()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = tokenIds.get(i);
+    }
+
+    return result;
+  }
+
+  /**
+   * Yields the answer of (@code to) to a safe transfer when it is known without calling it, null otherwise.
+   *
+   * @param acceptingReceivers the receivers that accept every token
+   */
+  public static IERC721Receiver.Acceptance knownAcceptance(Contract to, StorageSetView<Contract> acceptingReceivers) {
+    if (to instanceof ExternallyOwnedAccount) {
+      return IERC721Receiver.Acceptance.ACCEPTED;
+    }
+    if (!(to instanceof IERC721Receiver)) {
+      return IERC721Receiver.Acceptance.REJECTED;
+    }
+    if (acceptingReceivers.contains(to)) {
+      return IERC721Receiver.Acceptance.ACCEPTED_ALWAYS;
+    }
+
+    return null;
+  }
+
+  /**
+   * Yields the URI of (@code tokenId) computed from (@code baseURI), the empty string if there is no base URI.
+   */
+  public static String tokenURIOf(String baseURI, UnsignedBigInteger tokenId) {
+    return !baseURI.isEmpty()
+      ? baseURI + tokenId.toString()
+      : "";
+  }
+}
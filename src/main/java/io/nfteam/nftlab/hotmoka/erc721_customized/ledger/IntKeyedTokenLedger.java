@@ -0,0 +1,115 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.ledger;
+
+import io.takamaka.code.lang.Contract;
+import io.takamaka.code.lang.Takamaka;
+import io.takamaka.code.lang.View;
+import io.takamaka.code.math.UnsignedBigInteger;
+import io.takamaka.code.util.StorageIntMap;
+import io.takamaka.code.util.StorageIntMapView;
+import io.takamaka.code.util.StorageTreeIntMap;
+
+import java.math.BigInteger;
+
+/**
+ * A ledger that keys owners and approvals by a primitive (@code int) rather than by
+ * (@link UnsignedBigInteger), so that lookups compare primitive values and entries do not
+ * serialize a big integer key. Token ids must fit in a non-negative (@code int).
+ */
+public class IntKeyedTokenLedger extends TokenLedger {
+  private final StorageIntMap<Contract> owners = new StorageTreeIntMap<>();
+  private final StorageIntMap<Contract> tokenApprovals = new StorageTreeIntMap<>();
+
+  @Override @View
+  public Contract ownerOf(UnsignedBigInteger tokenId) {
+    return owners.get(key(tokenId));
+  }
+
+  @Override
+  protected void _setOwner(UnsignedBigInteger tokenId, Contract owner) {
+    int key = key(tokenId);
+
+    if (owner == null) {
+      owners.remove(key);
+    } else {
+      owners.put(key, owner);
+    }
+  }
+
+  @Override
+  protected void _setOwnerOfNewRange(UnsignedBigInteger firstTokenId, int count, Contract owner) {
+    int first = key(firstTokenId);
+    Takamaka.require(count - 1 <= Integer.MAX_VALUE - first, "IntKeyedTokenLedger: token id out of range");
+
+    for (int i = 0; i < count; i++) {
+      owners.put(first + i, owner);
+    }
+  }
+
+  @Override @View
+  public boolean isFree(UnsignedBigInteger firstTokenId, int count) {
+    int first = key(firstTokenId);
+    Takamaka.require(count - 1 <= Integer.MAX_VALUE - first, "IntKeyedTokenLedger: token id out of range");
+
+    for (int i = 0; i < count; i++) {
+      if (owners.get(first + i) != null) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override @View
+  public Contract approvedOf(UnsignedBigInteger tokenId) {
+    return tokenApprovals.get(key(tokenId));
+  }
+
+  @Override
+  protected void _setApproved(UnsignedBigInteger tokenId, Contract approved) {
+    int key = key(tokenId);
+
+    if (approved == null) {
+      tokenApprovals.remove(key);
+    } else {
+      tokenApprovals.put(key, approved);
+    }
+  }
+
+  /**
+   * Yields the primitive key of (@code tokenId).
+   *
+   * Requirements:
+   * - (@code tokenId) must fit in a non-negative (@code int).
+   */
+  public static int key(UnsignedBigInteger tokenId) {
+    BigInteger value = tokenId.toBigInteger();
+    Takamaka.require(value.bitLength() < Integer.SIZE, "IntKeyedTokenLedger: token id out of range");
+
+    return value.intValue();
+  }
+
+  private static final class Snapshot extends TokenLedgerView {
+    private final StorageIntMapView<Contract> owners;
+    private final StorageIntMapView<Contract> tokenApprovals;
+
+    private Snapshot(StorageIntMapView<Contract> owners, StorageIntMapView<Contract> tokenApprovals) {
+      this.owners = owners;
+      this.tokenApprovals = tokenApprovals;
+    }
+
+    @Override @View
+    public Contract ownerOf(UnsignedBigInteger tokenId) {
+      return owners.get(key(tokenId));
+    }
+
+    @Override @View
+    public Contract approvedOf(UnsignedBigInteger tokenId) {
+      return tokenApprovals.get(key(tokenId));
+    }
+  }
+
+  @Override @View
+  public TokenLedgerView snapshot() {
+    return new Snapshot(owners.snapshot(), tokenApprovals.snapshot());
+  }
+}
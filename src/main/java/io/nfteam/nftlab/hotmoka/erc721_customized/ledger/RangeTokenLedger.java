@@ -0,0 +1,152 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.ledger;
+
+import io.takamaka.code.lang.Contract;
+import io.takamaka.code.lang.Storage;
+import io.takamaka.code.lang.View;
+import io.takamaka.code.math.UnsignedBigInteger;
+import io.takamaka.code.util.StorageMap;
+import io.takamaka.code.util.StorageMapView;
+import io.takamaka.code.util.StorageTreeMap;
+
+/**
+ * A ledger whose ownership is range-compressed: a run of consecutive tokens with the same owner
+ * is stored as a single entry, keyed by the first token of the run. Minting a range of tokens
+ * hence writes a single entry, whatever the size of the range. Runs are split lazily, when one
+ * of their tokens is transferred or burnt. Approvals are kept in a map keyed by token id.
+ *
+ * The owner of a token is the owner of the run that starts at the nearest key not greater than the token.
+ */
+public class RangeTokenLedger extends TokenLedger {
+
+  // Mapping from the first token of a run to the run
+  private final StorageMap<UnsignedBigInteger, Run> runs = new StorageTreeMap<>();
+
+  private final StorageMap<UnsignedBigInteger, Contract> tokenApprovals = new StorageTreeMap<>();
+
+  /**
+   * A run of consecutive tokens with the same owner. Runs are immutable, so that
+   * they can be shared with the snapshots of the map that contains them.
+   */
+  private static final class Run extends Storage {
+    private final Contract owner;
+
+    // Exclusive end of the run
+    private final UnsignedBigInteger end;
+
+    private Run(Contract owner, UnsignedBigInteger end) {
+      this.owner = owner;
+      this.end = end;
+    }
+  }
+
+  @Override @View
+  public Contract ownerOf(UnsignedBigInteger tokenId) {
+    return ownerIn(runs, tokenId);
+  }
+
+  @Override
+  protected void _setOwner(UnsignedBigInteger tokenId, Contract owner) {
+    UnsignedBigInteger start = startOfRunIn(runs, tokenId);
+    UnsignedBigInteger next = tokenId.add(UnsignedBigInteger.valueOf(1));
+
+    if (start != null) {
+      // Split the run around the token, keeping what lies at its left and at its right
+      Run run = runs.get(start);
+
+      if (start.compareTo(tokenId) < 0) {
+        runs.put(start, new Run(run.owner, tokenId));
+      } else if (owner == null) {
+        runs.remove(start);
+      }
+
+      if (next.compareTo(run.end) < 0) {
+        runs.put(next, new Run(run.owner, run.end));
+      }
+    }
+
+    if (owner != null) {
+      runs.put(tokenId, new Run(owner, next));
+    }
+  }
+
+  @Override
+  protected void _setOwnerOfNewRange(UnsignedBigInteger firstTokenId, int count, Contract owner) {
+    if (count > 0) {
+      runs.put(firstTokenId, new Run(owner, firstTokenId.add(UnsignedBigInteger.valueOf(count))));
+    }
+  }
+
+  @Override @View
+  public boolean isFree(UnsignedBigInteger firstTokenId, int count) {
+    if (count == 0 || runs.isEmpty()) {
+      return true;
+    }
+
+    // Runs do not overlap, hence it suffices to check the last run that starts inside or before the range
+    UnsignedBigInteger last = firstTokenId.add(UnsignedBigInteger.valueOf(count - 1));
+
+    return last.compareTo(runs.min()) < 0 || runs.get(runs.floorKey(last)).end.compareTo(firstTokenId) <= 0;
+  }
+
+  @Override @View
+  public Contract approvedOf(UnsignedBigInteger tokenId) {
+    return tokenApprovals.get(tokenId);
+  }
+
+  @Override
+  protected void _setApproved(UnsignedBigInteger tokenId, Contract approved) {
+    if (approved == null) {
+      tokenApprovals.remove(tokenId);
+    } else {
+      tokenApprovals.put(tokenId, approved);
+    }
+  }
+
+  /**
+   * Yields the owner of (@code tokenId) in (@code runs), or null if the token does not exist.
+   */
+  private static Contract ownerIn(StorageMapView<UnsignedBigInteger, Run> runs, UnsignedBigInteger tokenId) {
+    UnsignedBigInteger start = startOfRunIn(runs, tokenId);
+
+    return start != null ? runs.get(start).owner : null;
+  }
+
+  /**
+   * Yields the first token of the run of (@code runs) that contains (@code tokenId),
+   * or null if no run contains it.
+   */
+  private static UnsignedBigInteger startOfRunIn(StorageMapView<UnsignedBigInteger, Run> runs, UnsignedBigInteger tokenId) {
+    if (runs.isEmpty() || tokenId.compareTo(runs.min()) < 0) {
+      return null;
+    }
+
+    UnsignedBigInteger start = runs.floorKey(tokenId);
+
+    return tokenId.compareTo(runs.get(start).end) < 0 ? start : null;
+  }
+
+  private static final class Snapshot extends TokenLedgerView {
+    private final StorageMapView<UnsignedBigInteger, Run> runs;
+    private final StorageMapView<UnsignedBigInteger, Contract> tokenApprovals;
+
+    private Snapshot(StorageMapView<UnsignedBigInteger, Run> runs, StorageMapView<UnsignedBigInteger, Contract> tokenApprovals) {
+      this.runs = runs;
+      this.tokenApprovals = tokenApprovals;
+    }
+
+    @Override @View
+    public Contract ownerOf(UnsignedBigInteger tokenId) {
+      return ownerIn(runs, tokenId);
+    }
+
+    @Override @View
+    public Contract approvedOf(UnsignedBigInteger tokenId) {
+      return tokenApprovals.get(tokenId);
+    }
+  }
+
+  @Override @View
+  public TokenLedgerView snapshot() {
+    return new Snapshot(runs.snapshot(), tokenApprovals.snapshot());
+  }
+}
@@ -0,0 +1,82 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.ledger;
+
+import io.takamaka.code.lang.Contract;
+import io.takamaka.code.lang.View;
+import io.takamaka.code.math.UnsignedBigInteger;
+import io.takamaka.code.util.StorageMap;
+import io.takamaka.code.util.StorageMapView;
+import io.takamaka.code.util.StorageTreeMap;
+
+/**
+ * A ledger for collections whose tokens are seldom approved. The map of the approvals is created
+ * at the first approval and dropped when its last approval is cleared, so that, without approvals,
+ * the ledger stores no approval map and an approval lookup, such as the one of every transfer,
+ * reads no map.
+ */
+public class SparseApprovalTokenLedger extends TokenLedger {
+  private final StorageMap<UnsignedBigInteger, Contract> owners = new StorageTreeMap<>();
+
+  // Null when no token is approved
+  private StorageMap<UnsignedBigInteger, Contract> tokenApprovals;
+
+  @Override @View
+  public Contract ownerOf(UnsignedBigInteger tokenId) {
+    return owners.get(tokenId);
+  }
+
+  @Override
+  protected void _setOwner(UnsignedBigInteger tokenId, Contract owner) {
+    if (owner == null) {
+      owners.remove(tokenId);
+    } else {
+      owners.put(tokenId, owner);
+    }
+  }
+
+  @Override @View
+  public Contract approvedOf(UnsignedBigInteger tokenId) {
+    return tokenApprovals != null ? tokenApprovals.get(tokenId) : null;
+  }
+
+  @Override
+  protected void _setApproved(UnsignedBigInteger tokenId, Contract approved) {
+    if (approved != null) {
+      if (tokenApprovals == null) {
+        tokenApprovals = new StorageTreeMap<>();
+      }
+
+      tokenApprovals.put(tokenId, approved);
+    } else if (tokenApprovals != null) {
+      tokenApprovals.remove(tokenId);
+
+      if (tokenApprovals.isEmpty()) {
+        tokenApprovals = null;
+      }
+    }
+  }
+
+  private static final class Snapshot extends TokenLedgerView {
+    private final StorageMapView<UnsignedBigInteger, Contract> owners;
+    private final StorageMapView<UnsignedBigInteger, Contract> tokenApprovals;
+
+    private Snapshot(StorageMapView<UnsignedBigInteger, Contract> owners, StorageMapView<UnsignedBigInteger, Contract> tokenApprovals) {
+      this.owners = owners;
+      this.tokenApprovals = tokenApprovals;
+    }
+
+    @Override @View
+    public Contract ownerOf(UnsignedBigInteger tokenId) {
+      return owners.get(tokenId);
+    }
+
+    @Override @View
+    public Contract approvedOf(UnsignedBigInteger tokenId) {
+      return tokenApprovals != null ? tokenApprovals.get(tokenId) : null;
+    }
+  }
+
+  @Override @View
+  public TokenLedgerView snapshot() {
+    return new Snapshot(owners.snapshot(), tokenApprovals != null ? tokenApprovals.snapshot() : null);
+  }
+}
@@ -0,0 +1,125 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.ledger;
+
+import io.takamaka.code.lang.Contract;
+import io.takamaka.code.lang.FromContract;
+import io.takamaka.code.lang.Takamaka;
+import io.takamaka.code.lang.View;
+import io.takamaka.code.math.UnsignedBigInteger;
+
+/**
+ * A modifiable (@link TokenLedgerView). An ERC721 selects its ledger at construction,
+ * according to the shape of its collection:
+ *
+ * - (@link TreeTokenLedger) fits any collection;
+ * - (@link IntKeyedTokenLedger) fits token ids that are small non-negative integers;
+ * - (@link RangeTokenLedger) fits collections minted in large ranges of consecutive tokens;
+ * - (@link SparseApprovalTokenLedger) fits collections whose tokens are seldom approved.
+ *
+ * Ledgers only store: requirements, balances and events are left to the token.
+ * A ledger is bound to the token that uses it first, through (@link #bind()),
+ * and only accepts modifications from that token. Subclasses define how they store
+ * through the protected methods, that the public ones call once the caller is checked.
+ */
+abstract public class TokenLedger extends TokenLedgerView {
+
+  // The token bound to this ledger, null until its first use
+  private Contract token;
+
+  /**
+   * Binds this ledger to its caller, that becomes the only contract that can modify it.
+   *
+   * Requirements:
+   * - the ledger must not be bound to a token yet.
+   */
+  @FromContract
+  public final void bind() {
+    Takamaka.require(token == null, "TokenLedger: the ledger is already bound to a token");
+
+    token = caller();
+  }
+
+  /**
+   * Sets (@code owner) as the owner of (@code tokenId). A null owner deletes the token.
+   *
+   * Requirements:
+   * - the caller must be the token bound to this ledger.
+   */
+  @FromContract
+  public final void setOwner(UnsignedBigInteger tokenId, Contract owner) {
+    _onlyToken(caller());
+    _setOwner(tokenId, owner);
+  }
+
+  /**
+   * Sets (@code owner) as the owner of the (@code count) consecutive tokens starting
+   * at (@code firstTokenId), that the caller knows not to exist yet.
+   *
+   * Requirements:
+   * - the caller must be the token bound to this ledger.
+   */
+  @FromContract
+  public final void setOwnerOfNewRange(UnsignedBigInteger firstTokenId, int count, Contract owner) {
+    _onlyToken(caller());
+    _setOwnerOfNewRange(firstTokenId, count, owner);
+  }
+
+  /**
+   * Sets (@code approved) as the account approved for (@code tokenId). A null account clears the approval.
+   *
+   * Requirements:
+   * - the caller must be the token bound to this ledger.
+   */
+  @FromContract
+  public final void setApproved(UnsignedBigInteger tokenId, Contract approved) {
+    _onlyToken(caller());
+    _setApproved(tokenId, approved);
+  }
+
+  /**
+   * Stores (@code owner) as the owner of (@code tokenId). A null owner deletes the token.
+   */
+  protected abstract void _setOwner(UnsignedBigInteger tokenId, Contract owner);
+
+  /**
+   * Stores (@code owner) as the owner of the (@code count) consecutive tokens starting
+   * at (@code firstTokenId), that do not exist yet.
+   */
+  protected void _setOwnerOfNewRange(UnsignedBigInteger firstTokenId, int count, Contract owner) {
+    UnsignedBigInteger one = UnsignedBigInteger.valueOf(1);
+    UnsignedBigInteger tokenId = firstTokenId;
+    for (int i = 0; i < count; i++, tokenId = tokenId.add(one)) {
+      _setOwner(tokenId, owner);
+    }
+  }
+
+  /**
+   * Stores (@code approved) as the account approved for (@code tokenId). A null account clears the approval.
+   */
+  protected abstract void _setApproved(UnsignedBigInteger tokenId, Contract approved);
+
+  /**
+   * Determines if none of the (@code count) consecutive tokens starting at (@code firstTokenId) exists.
+   */
+  @View
+  public boolean isFree(UnsignedBigInteger firstTokenId, int count) {
+    UnsignedBigInteger one = UnsignedBigInteger.valueOf(1);
+    UnsignedBigInteger tokenId = firstTokenId;
+    for (int i = 0; i < count; i++, tokenId = tokenId.add(one)) {
+      if (ownerOf(tokenId) != null) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Yields a view of the current state of this ledger, that later modifications do not affect.
+   */
+  @View
+  public abstract TokenLedgerView snapshot();
+
+  private void _onlyToken(Contract caller) {
+    Takamaka.require(caller == token, "TokenLedger: only its token can modify the ledger");
+  }
+}
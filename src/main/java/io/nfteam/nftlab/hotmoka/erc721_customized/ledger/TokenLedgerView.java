@@ -0,0 +1,24 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.ledger;
+
+import io.takamaka.code.lang.Contract;
+import io.takamaka.code.lang.Storage;
+import io.takamaka.code.lang.View;
+import io.takamaka.code.math.UnsignedBigInteger;
+
+/**
+ * The per-token state of an ERC721: the owner and the approved account of each token.
+ */
+abstract public class TokenLedgerView extends Storage {
+
+  /**
+   * Yields the owner of (@code tokenId), or null if the token does not exist.
+   */
+  @View
+  public abstract Contract ownerOf(UnsignedBigInteger tokenId);
+
+  /**
+   * Yields the account approved for (@code tokenId), or null if there is none.
+   */
+  @View
+  public abstract Contract approvedOf(UnsignedBigInteger tokenId);
+}
@@ -0,0 +1,69 @@
+package io.nfteam.nftlab.hotmoka.erc721_customized.ledger;
+
+import io.takamaka.code.lang.Contract;
+import io.takamaka.code.lang.View;
+import io.takamaka.code.math.UnsignedBigInteger;
+import io.takamaka.code.util.StorageMap;
+import io.takamaka.code.util.StorageMapView;
+import io.takamaka.code.util.StorageTreeMap;
+
+/**
+ * A ledger that keeps owners and approvals in two maps keyed by token id. It is the default ledger.
+ */
+public class TreeTokenLedger extends TokenLedger {
+  private final StorageMap<UnsignedBigInteger, Contract> owners = new StorageTreeMap<>();
+  private final StorageMap<UnsignedBigInteger, Contract> tokenApprovals = new StorageTreeMap<>();
+
+  @Override @View
+  public Contract ownerOf(UnsignedBigInteger tokenId) {
+    return owners.get(tokenId);
+  }
+
+  @Override
+  protected void _setOwner(UnsignedBigInteger tokenId, Contract owner) {
+    if (owner == null) {
+      owners.remove(tokenId);
+    } else {
+      owners.put(tokenId, owner);
+    }
+  }
+
+  @Override @View
+  public Contract approvedOf(UnsignedBigInteger tokenId) {
+    return tokenApprovals.get(tokenId);
+  }
+
+  @Override
+  protected void _setApproved(UnsignedBigInteger tokenId, Contract approved) {
+    if (approved == null) {
+      tokenApprovals.remove(tokenId);
+    } else {
+      tokenApprovals.put(tokenId, approved);
+    }
+  }
+
+  private static final class Snapshot extends TokenLedgerView {
+    private final StorageMapView<UnsignedBigInteger, Contract> owners;
+    private final StorageMapView<UnsignedBigInteger, Contract> tokenApprovals;
+
+    private Snapshot(StorageMapView<UnsignedBigInteger, Contract> owners, StorageMapView<UnsignedBigInteger, Contract> tokenApprovals) {
+      this.owners = owners;
+      this.tokenApprovals = tokenApprovals;
+    }
+
+    @Override @View
+    public Contract ownerOf(UnsignedBigInteger tokenId) {
+      return owners.get(tokenId);
+    }
+
+    @Override @View
+    public Contract approvedOf(UnsignedBigInteger tokenId) {
+      return tokenApprovals.get(tokenId);
+    }
+  }
+
+  @Override @View
+  public TokenLedgerView snapshot() {
+    return new Snapshot(owners.snapshot(), tokenApprovals.snapshot());
+  }
+}
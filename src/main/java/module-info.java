@@ -1,5 +1,6 @@
 module io.nfteam.nftlab.hotmoka.erc721_customized {
   exports io.nfteam.nftlab.hotmoka.erc721_customized;
   exports io.nfteam.nftlab.hotmoka.erc721_customized.extensions;
+  exports io.nfteam.nftlab.hotmoka.erc721_customized.ledger;
   requires io.takamaka.code;
 }